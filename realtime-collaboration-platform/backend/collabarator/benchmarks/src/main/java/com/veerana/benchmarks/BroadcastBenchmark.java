@@ -0,0 +1,148 @@
+package com.veerana.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.handler.BinaryFrameCodec;
+import com.veerana.collaboration_service.handler.RoomSessions;
+import com.veerana.collaboration_service.handler.SessionOutbound;
+import com.veerana.collaboration_service.handler.WireFormat;
+import com.veerana.collaboration_service.service.CollabMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The room fan-out in CollabWebSocketHandler.broadcastToRoom, against the striped
+ * RoomSessions the handler uses, the CopyOnWriteArraySet it replaced and a
+ * ConcurrentHashMap key set.
+ *
+ * Sessions are stubs and the send executor runs inline, so the numbers cover
+ * iteration, frame building and queueing — not the socket write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int roomSize;
+
+    // STRIPED: RoomSessions (current), COW: CopyOnWriteArraySet, CHM: ConcurrentHashMap.newKeySet()
+    @Param({"STRIPED", "COW", "CHM"})
+    String roomImpl;
+
+    // Every n-th member negotiated the binary subprotocol (0 = all JSON)
+    @Param({"0", "4"})
+    int binaryEvery;
+
+    private static final Executor INLINE = Runnable::run;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinaryFrameCodec binaryCodec = new BinaryFrameCodec();
+    private final CollabMetrics metrics = new CollabMetrics(new SimpleMeterRegistry());
+
+    private Iterable<SessionOutbound> room;
+    private Consumer<SessionOutbound> add;
+    private Consumer<SessionOutbound> remove;
+    private SessionOutbound churner;
+    private String documentId;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        switch (roomImpl) {
+            case "STRIPED" -> {
+                RoomSessions sessions = new RoomSessions();
+                room = sessions;
+                add = sessions::add;
+                remove = sessions::remove;
+            }
+            case "CHM" -> {
+                Set<SessionOutbound> set = ConcurrentHashMap.newKeySet();
+                room = set;
+                add = set::add;
+                remove = set::remove;
+            }
+            default -> {
+                Set<SessionOutbound> set = new CopyOnWriteArraySet<>();
+                room = set;
+                add = set::add;
+                remove = set::remove;
+            }
+        }
+        for (int i = 0; i < roomSize; i++) {
+            boolean binary = binaryEvery > 0 && i % binaryEvery == 0;
+            add.accept(outbound("s" + i, binary));
+        }
+        churner = outbound("churn", false);
+
+        CollabMessage message = Payloads.opsEdit(64);
+        documentId = message.getDocumentId();
+        json = objectMapper.writeValueAsBytes(message);
+    }
+
+    private SessionOutbound outbound(String id, boolean binary) {
+        return new SessionOutbound(new StubSession(id), binary ? WireFormat.BINARY : WireFormat.JSON, INLINE,
+                Integer.MAX_VALUE, SessionOutbound.OverflowPolicy.DROP_CURSOR, metrics, false);
+    }
+
+    // Bare iteration cost of the room set
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (SessionOutbound o : room) {
+            bh.consume(o.isBinary());
+        }
+    }
+
+    // Same loop as broadcastToRoom: one shared frame per wire format, enqueue per member
+    @Benchmark
+    public int broadcast() throws Exception {
+        TextMessage textFrame = new TextMessage(json);
+        BinaryMessage binaryFrame = null;
+        int recipients = 0;
+
+        for (SessionOutbound o : room) {
+            WebSocketMessage<?> frame = textFrame;
+            if (o.isBinary()) {
+                if (binaryFrame == null) {
+                    CollabMessage msg = objectMapper.readValue(json, CollabMessage.class);
+                    binaryFrame = new BinaryMessage(binaryCodec.encode(documentId, msg));
+                }
+                frame = binaryFrame;
+            }
+            o.enqueue(frame, "EDIT", "editor@example.com");
+            recipients++;
+        }
+        return recipients;
+    }
+
+    // One JOIN plus one LEAVE — whole-array copy-on-write pays for the full room twice
+    @Benchmark
+    public void joinLeave() {
+        add.accept(churner);
+        remove.accept(churner);
+    }
+}
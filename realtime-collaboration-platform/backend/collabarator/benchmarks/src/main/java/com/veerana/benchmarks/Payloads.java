@@ -0,0 +1,63 @@
+package com.veerana.benchmarks;
+
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.dto.TextOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representative frames. {@code size} is roughly the text carried by the frame:
+ * legacy EDIT content, or the inserted text spread over a few ops.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    static CollabMessage legacyEdit(int size) {
+        return CollabMessage.builder()
+                .type("EDIT")
+                .documentId("6f1c2a9e-3b7d-4c55-9a0e-1d2f3e4a5b6c")
+                .userEmail("editor@example.com")
+                .content(text(size))
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    static CollabMessage opsEdit(int size) {
+        int opCount = Math.max(1, Math.min(8, size / 32));
+        List<TextOperation> ops = new ArrayList<>(opCount);
+        String chunk = text(Math.max(1, size / opCount));
+        for (int i = 0; i < opCount; i++) {
+            ops.add(i % 4 == 3 ? TextOperation.delete(i * 10, 3) : TextOperation.insert(i * 10, chunk));
+        }
+        return CollabMessage.builder()
+                .type("EDIT")
+                .documentId("6f1c2a9e-3b7d-4c55-9a0e-1d2f3e4a5b6c")
+                .userEmail("editor@example.com")
+                .revision(4242L)
+                .ops(ops)
+                .streamId("1718000000000-0")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    static CollabMessage cursor() {
+        return CollabMessage.builder()
+                .type("CURSOR")
+                .documentId("6f1c2a9e-3b7d-4c55-9a0e-1d2f3e4a5b6c")
+                .userEmail("editor@example.com")
+                .content("1284")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static String text(int size) {
+        StringBuilder sb = new StringBuilder(size);
+        String words = "the quick brown fox jumps over the lazy dog ";
+        while (sb.length() < size) sb.append(words);
+        sb.setLength(size);
+        return sb.toString();
+    }
+}
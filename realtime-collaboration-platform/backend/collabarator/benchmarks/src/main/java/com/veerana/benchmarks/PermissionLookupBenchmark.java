@@ -0,0 +1,149 @@
+package com.veerana.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * document-service permission lookups against PostgreSQL, without and with the
+ * indexes from V2__document_permissions_indexes.sql.
+ *
+ * Runs on a scratch table (bench_document_permissions) in the database given by
+ * -Dbench.jdbc.url / .user / .password, filled once per row count: every
+ * document has 4 permissions, every user 20. The SQL is what Hibernate issues
+ * for findByDocumentIdAndUserEmail and findByUserEmail. Each trial prints the
+ * query plan, so the Seq Scan vs Index Scan shows next to the numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionLookupBenchmark {
+
+    // 5M matches production; smaller sizes fill much faster on a laptop
+    @Param({"1000000"})
+    int rows;
+
+    // NONE: schema as left by ddl-auto, MIGRATED: after V2
+    @Param({"NONE", "MIGRATED"})
+    String indexes;
+
+    private static final String TABLE = "bench_document_permissions";
+    private static final int PERMISSIONS_PER_DOCUMENT = 4;
+    private static final int DOCUMENTS_PER_USER = 20;
+
+    private static final String BY_DOCUMENT_AND_USER =
+            "select id, document_id, role, user_email from " + TABLE + " where document_id = ? and user_email = ?";
+    private static final String BY_USER =
+            "select id, document_id, role, user_email from " + TABLE + " where user_email = ?";
+
+    private Connection connection;
+    private PreparedStatement byDocumentAndUser;
+    private PreparedStatement byUser;
+    private int users;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/documentdb"),
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", "sqlpro"));
+        users = rows / DOCUMENTS_PER_USER;
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("create unlogged table if not exists " + TABLE + " ("
+                    + "id varchar(255) primary key, document_id varchar(255), "
+                    + "user_email varchar(255), role varchar(255))");
+            if (count(st) != rows) {
+                st.execute("truncate " + TABLE);
+                // Consecutive ids share a document, and the user cycles, so (document, user) stays unique
+                st.execute("insert into " + TABLE + " (id, document_id, user_email, role) "
+                        + "select 'p' || g, 'doc-' || (g / " + PERMISSIONS_PER_DOCUMENT + "), "
+                        + "'user' || (g % " + users + ") || '@example.com', "
+                        + "case when g % " + PERMISSIONS_PER_DOCUMENT + " = 0 then 'OWNER' else 'EDITOR' end "
+                        + "from generate_series(0, " + (rows - 1) + ") g");
+            }
+
+            st.execute("drop index if exists bench_uk_document_user");
+            st.execute("drop index if exists bench_idx_user");
+            if (indexes.equals("MIGRATED")) {
+                st.execute("create unique index bench_uk_document_user on " + TABLE + " (document_id, user_email)");
+                st.execute("create index bench_idx_user on " + TABLE + " (user_email)");
+            }
+            st.execute("analyze " + TABLE);
+        }
+
+        byDocumentAndUser = connection.prepareStatement(BY_DOCUMENT_AND_USER);
+        byUser = connection.prepareStatement(BY_USER);
+        printPlan("findByDocumentIdAndUserEmail", BY_DOCUMENT_AND_USER
+                .replaceFirst("\\?", "'doc-1'").replaceFirst("\\?", "'user1@example.com'"));
+        printPlan("findByUserEmail", BY_USER.replaceFirst("\\?", "'user1@example.com'"));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void findByDocumentIdAndUserEmail(Blackhole bh) throws SQLException {
+        int g = ThreadLocalRandom.current().nextInt(rows);
+        byDocumentAndUser.setString(1, "doc-" + (g / PERMISSIONS_PER_DOCUMENT));
+        byDocumentAndUser.setString(2, "user" + (g % users) + "@example.com");
+        consume(byDocumentAndUser, bh);
+    }
+
+    @Benchmark
+    public void findByUserEmail(Blackhole bh) throws SQLException {
+        byUser.setString(1, "user" + ThreadLocalRandom.current().nextInt(users) + "@example.com");
+        consume(byUser, bh);
+    }
+
+    private static void consume(PreparedStatement statement, Blackhole bh) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getString(1));
+                bh.consume(rs.getString(3));
+            }
+        }
+    }
+
+    private long count(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery("select count(*) from " + TABLE)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void printPlan(String name, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder("\n" + name + " [" + indexes + "]:\n");
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("explain analyze " + sql)) {
+            while (rs.next()) {
+                plan.append("  ").append(rs.getString(1)).append('\n');
+            }
+        }
+        System.out.print(plan);
+    }
+}
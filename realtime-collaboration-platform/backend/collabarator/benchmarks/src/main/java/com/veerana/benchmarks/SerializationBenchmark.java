@@ -0,0 +1,106 @@
+package com.veerana.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.handler.BinaryFrameCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CollabMessage (de)serialization on every path a frame takes:
+ * inbound JSON, Redis publish/consume, outbound JSON and the binary subprotocol.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    // Approximate text carried per frame
+    @Param({"64", "1024", "16384"})
+    int size;
+
+    // LEGACY: whole text in content, OPS: insert/delete ops with revision and streamId
+    @Param({"LEGACY", "OPS"})
+    String shape;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Jackson2JsonRedisSerializer<CollabMessage> redisSerializer =
+            new Jackson2JsonRedisSerializer<>(CollabMessage.class);
+    private final BinaryFrameCodec binaryCodec = new BinaryFrameCodec();
+
+    private CollabMessage message;
+    private String json;
+    private byte[] jsonBytes;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        message = "OPS".equals(shape) ? Payloads.opsEdit(size) : Payloads.legacyEdit(size);
+        json = objectMapper.writeValueAsString(message);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        // Second encode is the steady state: the sender is already in the room's user table
+        binaryCodec.encode(message.getDocumentId(), message);
+        binary = binaryCodec.encode(message.getDocumentId(), message);
+    }
+
+    // Inbound text frame (handleTextMessage)
+    @Benchmark
+    public CollabMessage readValueString() throws Exception {
+        return objectMapper.readValue(json, CollabMessage.class);
+    }
+
+    // Redis frame re-read for binary recipients (broadcastToRoom)
+    @Benchmark
+    public CollabMessage readValueBytes() throws Exception {
+        return objectMapper.readValue(jsonBytes, CollabMessage.class);
+    }
+
+    @Benchmark
+    public String writeValueAsString() throws Exception {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    // What publish() puts on the raw Redis channel
+    @Benchmark
+    public byte[] writeValueAsBytes() throws Exception {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    // RedisTemplate value serializer from RedisConfig
+    @Benchmark
+    public byte[] redisSerialize() {
+        return redisSerializer.serialize(message);
+    }
+
+    @Benchmark
+    public CollabMessage redisDeserialize() {
+        return redisSerializer.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binaryCodec.encode(message.getDocumentId(), message);
+    }
+
+    @Benchmark
+    public CollabMessage binaryDecode() {
+        return binaryCodec.decode(ByteBuffer.wrap(binary));
+    }
+}
@@ -0,0 +1,57 @@
+package com.veerana.collaboration_service.config;
+
+import com.veerana.collaboration_service.handler.FrameCompressor;
+import com.veerana.collaboration_service.handler.WireFormat;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+
+/**
+ * Decides per handshake whether permessage-deflate (RFC 7692) is accepted.
+ *
+ * The container's permessage-deflate compresses every frame, tiny CURSOR
+ * frames included, so it is only kept for plain JSON clients. Sessions on a
+ * subprotocol with thresholded frame compression (see {@link FrameCompressor})
+ * would otherwise pay to deflate already-deflated frames.
+ */
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final SubProtocolCapable handler;
+    private final FrameCompressor compressor;
+    private final boolean permessageDeflate;
+
+    public CompressionHandshakeHandler(SubProtocolCapable handler, FrameCompressor compressor,
+                                       boolean permessageDeflate) {
+        this.handler = handler;
+        this.compressor = compressor;
+        this.permessageDeflate = permessageDeflate;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requested,
+                                                                 List<WebSocketExtension> supported) {
+        List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requested, supported);
+        if (permessageDeflate && !frameCompressed(request)) return accepted;
+        return accepted.stream()
+                .filter(e -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(e.getName()))
+                .toList();
+    }
+
+    // Same pick as the handshake: the client's first requested subprotocol we support
+    private boolean frameCompressed(ServerHttpRequest request) {
+        if (!compressor.isEnabled()) return false;
+        List<String> offered = handler.getSubProtocols();
+        String selected = new WebSocketHttpHeaders(request.getHeaders()).getSecWebSocketProtocol().stream()
+                .filter(offered::contains)
+                .findFirst()
+                .orElse(null);
+        return WireFormat.of(selected) != WireFormat.JSON;
+    }
+}
@@ -0,0 +1,71 @@
+package com.veerana.collaboration_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors for the blocking work in collaboration-service.
+ *
+ * With collab.virtual-threads.enabled=true (requires a Java 21 runtime) every
+ * task runs on its own virtual thread, so blocking socket writes, Redis calls
+ * and document-service requests no longer tie up a fixed platform pool.
+ *
+ * The dispatch and snapshot pools keep running while the context closes and
+ * finish their queue on shutdown: rooms emptied by the shutdown drain are
+ * closed and written back through them.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${collab.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    // How long the dispatch and snapshot pools may take to finish their queue on shutdown
+    @Value("${collab.shutdown.await-seconds:10}")
+    private int shutdownAwaitSeconds;
+
+    // Drains per-session outbound queues — keeps socket writes off the Redis listener thread
+    @Bean
+    public TaskExecutor collabSendExecutor(
+            @Value("${collab.send.threads:8}") int threads
+    ) {
+        return executor("collab-send-", threads, false);
+    }
+
+    // Runs Redis message dispatch, serialized per room by RoomDispatcher
+    @Bean
+    public TaskExecutor collabDispatchExecutor(
+            @Value("${collab.dispatch.threads:4}") int threads
+    ) {
+        return executor("collab-dispatch-", threads, true);
+    }
+
+    // Loads and writes document snapshots — blocking HTTP to document-service
+    @Bean
+    public TaskExecutor collabSnapshotExecutor() {
+        return executor("collab-snapshot-", 2, true);
+    }
+
+    private TaskExecutor executor(String threadNamePrefix, int threads, boolean outliveDrain) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor(threadNamePrefix);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        if (outliveDrain) {
+            executor.setAcceptTasksAfterContextClose(true);
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(shutdownAwaitSeconds);
+        }
+
+        return executor;
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.veerana.collaboration_service.dto.CollabMessage;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
@@ -46,6 +47,10 @@ public class RedisConfig {
 
         container.setConnectionFactory(factory);
 
+        // Listeners only peek the frame and hand off to RoomDispatcher, so run them inline:
+        // keeps arrival order and avoids a thread per message
+        container.setTaskExecutor(new SyncTaskExecutor());
+
         return container;
     }
 
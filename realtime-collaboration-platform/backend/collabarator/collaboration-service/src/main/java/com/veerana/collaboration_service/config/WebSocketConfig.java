@@ -1,7 +1,10 @@
 package com.veerana.collaboration_service.config;
 
 import com.veerana.collaboration_service.handler.CollabWebSocketHandler;
+import com.veerana.collaboration_service.handler.FrameCompressor;
+import com.veerana.collaboration_service.handler.SessionDrainer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -13,11 +16,20 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final CollabWebSocketHandler collabWebSocketHandler;
+    private final FrameCompressor frameCompressor;
+    private final SessionDrainer sessionDrainer;
+
+    // Accept RFC 7692 permessage-deflate when browsers offer it (plain JSON sessions only)
+    @Value("${collab.compression.permessage-deflate:true}")
+    private boolean permessageDeflate;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry
                 .addHandler(collabWebSocketHandler, "/ws/collab/{documentId}")
+                .setHandshakeHandler(new CompressionHandshakeHandler(
+                        collabWebSocketHandler, frameCompressor, permessageDeflate))
+                .addInterceptors(new DrainHandshakeInterceptor(sessionDrainer))
                 .setAllowedOrigins("*"); // gateway handles auth
     }
-}
\ No newline at end of file
+}
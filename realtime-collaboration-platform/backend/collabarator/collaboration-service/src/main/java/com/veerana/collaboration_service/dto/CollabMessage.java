@@ -5,13 +5,16 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class CollabMessage {
 
-    // Type of message: JOIN | LEAVE | EDIT | CURSOR | PRESENCE
+    // Type of message: JOIN | LEAVE | EDIT | CURSOR | CURSORS | PRESENCE | RESYNC | RECONNECT
     private String type;
 
     // Document room this message belongs to
@@ -20,9 +23,23 @@ public class CollabMessage {
     // Who sent it (email from JWT)
     private String userEmail;
 
-    // Actual content (for EDIT: the changed text, for CURSOR: position)
+    // Actual content (for legacy EDIT without ops: the changed text, for CURSOR: position,
+    // for RECONNECT: ms to wait before reconnecting)
     private String content;
 
+    // EDIT ops: client sends the revision its ops are based on,
+    // server replies with the revision the transformed ops produced
+    private Long revision;
+
+    // Small insert/delete ops for EDIT (replaces shipping the whole text)
+    private List<TextOperation> ops;
+
+    // EDIT: id of this frame in the document's op log (resume point on reconnect)
+    private String streamId;
+
+    // CURSORS batch: userEmail → latest cursor position within one tick
+    private Map<String, String> cursors;
+
     // Timestamp
     private long timestamp;
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.veerana.collaboration_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextOperation {
+
+    public static final String INSERT = "INSERT";
+    public static final String DELETE = "DELETE";
+
+    // INSERT | DELETE
+    private String type;
+
+    // Character offset the operation applies at
+    private int position;
+
+    // Inserted text (INSERT only)
+    private String text;
+
+    // Number of characters removed (DELETE only)
+    private int length;
+
+    @JsonIgnore
+    public boolean isInsert() {
+        return INSERT.equals(type);
+    }
+
+    @JsonIgnore
+    public boolean isDelete() {
+        return DELETE.equals(type);
+    }
+
+    public static TextOperation insert(int position, String text) {
+        return new TextOperation(INSERT, position, text, 0);
+    }
+
+    public static TextOperation delete(int position, int length) {
+        return new TextOperation(DELETE, position, null, length);
+    }
+}
@@ -0,0 +1,293 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.dto.TextOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact varint encoding of CollabMessage for the "collab.v1.bin" subprotocol.
+ *
+ * Layout (all integers are unsigned LEB128 varints, strings are length-prefixed UTF-8):
+ * <pre>
+ *   type     1 byte (see TYPES; 0 = custom, followed by the type string)
+ *   flags    varint  USER | CONTENT | REVISION | OPS | CURSORS | TABLE | STREAM
+ *   user     user ref                       (if USER)
+ *   content  string                         (if CONTENT)
+ *   revision varint                         (if REVISION)
+ *   ops      count, then per op: 0 pos text | 1 pos length   (if OPS)
+ *   cursors  count, then per entry: user ref, position      (if CURSORS)
+ *   table    count, then per entry: id, email               (if TABLE, PRESENCE only)
+ *   streamId string                         (if STREAM)
+ *   timestamp varint
+ * </pre>
+ * documentId is never sent — the session already knows its room. Users are
+ * interned to small per-room ids; a user ref is {@code id << 1 | inline},
+ * followed by the email when {@code inline} is set (first use in the room,
+ * and on every JOIN) so clients can build the id table as frames arrive.
+ */
+@Component
+public class BinaryFrameCodec {
+
+    public static final String BINARY_PROTOCOL = "collab.v1.bin";
+    public static final String JSON_PROTOCOL   = "collab.v1.json";
+
+    private static final String[] TYPES = {
+            null, "JOIN", "LEAVE", "EDIT", "CURSOR", "CURSORS", "PRESENCE", "RESYNC"
+    };
+
+    private static final int USER     = 1;
+    private static final int CONTENT  = 1 << 1;
+    private static final int REVISION = 1 << 2;
+    private static final int OPS      = 1 << 3;
+    private static final int CURSORS  = 1 << 4;
+    private static final int TABLE    = 1 << 5;
+    private static final int STREAM   = 1 << 6;
+
+    // Upper bound on ops in one client frame; an op is never shorter than MIN_OP_BYTES
+    static final int MAX_OPS = 4096;
+    private static final int MIN_OP_BYTES = 3;
+
+    // documentId → interned user ids for that room
+    private final Map<String, UserTable> tables = new ConcurrentHashMap<>();
+
+    // =========================
+    // ENCODE
+    // =========================
+    public byte[] encode(String documentId, CollabMessage msg) {
+        UserTable users = tables.computeIfAbsent(documentId, k -> new UserTable());
+        Writer out = new Writer();
+
+        int code = typeCode(msg.getType());
+        out.writeByte(code);
+        if (code == 0) out.writeString(msg.getType());
+
+        int flags = 0;
+        if (msg.getUserEmail() != null) flags |= USER;
+        if (msg.getContent() != null)   flags |= CONTENT;
+        if (msg.getRevision() != null)  flags |= REVISION;
+        if (msg.getOps() != null)       flags |= OPS;
+        if (msg.getCursors() != null)   flags |= CURSORS;
+        // PRESENCE goes to a joining client — give it every id already in use
+        boolean table = "PRESENCE".equals(msg.getType());
+        if (table) flags |= TABLE;
+        if (msg.getStreamId() != null)  flags |= STREAM;
+        out.writeVarint(flags);
+
+        if (msg.getUserEmail() != null) {
+            writeUser(out, users, msg.getUserEmail(), "JOIN".equals(msg.getType()));
+        }
+        if (msg.getContent() != null) {
+            out.writeString(msg.getContent());
+        }
+        if (msg.getRevision() != null) {
+            out.writeVarint(msg.getRevision());
+        }
+        if (msg.getOps() != null) {
+            out.writeVarint(msg.getOps().size());
+            for (TextOperation op : msg.getOps()) {
+                if (op.isInsert()) {
+                    out.writeByte(0);
+                    out.writeVarint(op.getPosition());
+                    out.writeString(op.getText());
+                } else {
+                    out.writeByte(1);
+                    out.writeVarint(op.getPosition());
+                    out.writeVarint(op.getLength());
+                }
+            }
+        }
+        if (msg.getCursors() != null) {
+            out.writeVarint(msg.getCursors().size());
+            for (Map.Entry<String, String> e : msg.getCursors().entrySet()) {
+                writeUser(out, users, e.getKey(), false);
+                out.writeString(e.getValue() != null ? e.getValue() : "");
+            }
+        }
+        if (table) {
+            Map<Integer, String> snapshot = users.snapshot();
+            out.writeVarint(snapshot.size());
+            snapshot.forEach((id, email) -> {
+                out.writeVarint(id);
+                out.writeString(email);
+            });
+        }
+        if (msg.getStreamId() != null) {
+            out.writeString(msg.getStreamId());
+        }
+        out.writeVarint(msg.getTimestamp());
+
+        return out.toByteArray();
+    }
+
+    // Called when the last session leaves the room
+    public void release(String documentId) {
+        tables.remove(documentId);
+    }
+
+    // =========================
+    // DECODE (client → server)
+    // =========================
+    public CollabMessage decode(ByteBuffer buffer) {
+        Reader in = new Reader(buffer);
+        CollabMessage msg = new CollabMessage();
+
+        int code = in.readByte();
+        if (code >= TYPES.length) {
+            throw new IllegalArgumentException("Unknown frame type " + code);
+        }
+        msg.setType(code == 0 ? in.readString() : TYPES[code]);
+
+        int flags = in.readVarint();
+        if ((flags & USER) != 0) {
+            // Server always overrides the sender — skip the ref
+            int ref = in.readVarint();
+            if ((ref & 1) != 0) in.readString();
+        }
+        if ((flags & CONTENT) != 0) {
+            msg.setContent(in.readString());
+        }
+        if ((flags & REVISION) != 0) {
+            msg.setRevision(in.readVarlong());
+        }
+        if ((flags & OPS) != 0) {
+            int count = in.readVarint();
+            // Bound the allocation by what the frame can actually hold
+            if (count > MAX_OPS || count > in.remaining() / MIN_OP_BYTES) {
+                throw new IllegalArgumentException("Too many ops: " + count);
+            }
+            List<TextOperation> ops = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int kind = in.readByte();
+                int position = in.readVarint();
+                ops.add(kind == 0
+                        ? TextOperation.insert(position, in.readString())
+                        : TextOperation.delete(position, in.readVarint()));
+            }
+            msg.setOps(ops);
+        }
+        // CURSORS batches are server-generated only; clients never send them
+        return msg;
+    }
+
+    // =========================
+    // HELPERS
+    // =========================
+    private static int typeCode(String type) {
+        for (int i = 1; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) return i;
+        }
+        return 0;
+    }
+
+    private static void writeUser(Writer out, UserTable users, String email, boolean forceInline) {
+        UserTable.Ref ref = users.intern(email);
+        boolean inline = ref.isNew() || forceInline;
+        out.writeVarint(ref.id() << 1 | (inline ? 1 : 0));
+        if (inline) out.writeString(email);
+    }
+
+    private static class UserTable {
+        private final AtomicInteger nextId = new AtomicInteger();
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+        Ref intern(String email) {
+            boolean[] created = new boolean[1];
+            int id = ids.computeIfAbsent(email, k -> {
+                created[0] = true;
+                return nextId.getAndIncrement();
+            });
+            return new Ref(id, created[0]);
+        }
+
+        Map<Integer, String> snapshot() {
+            Map<Integer, String> result = new LinkedHashMap<>();
+            ids.forEach((email, id) -> result.put(id, email));
+            return result;
+        }
+
+        record Ref(int id, boolean isNew) {}
+    }
+
+    private static class Writer extends ByteArrayOutputStream {
+        Writer() {
+            super(64);
+        }
+
+        void writeByte(int b) {
+            write(b);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        int remaining() {
+            return buffer.remaining();
+        }
+
+        int readByte() {
+            if (!buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Truncated frame");
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        long readVarlong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        // Non-negative int; anything larger is a malformed frame, not an arithmetic error
+        int readVarint() {
+            long value = readVarlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Varint out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        String readString() {
+            int length = readVarint();
+            if (length > buffer.remaining()) {
+                throw new IllegalArgumentException(
+                        "String length " + length + " exceeds remaining " + buffer.remaining() + " bytes");
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -2,39 +2,102 @@ package com.veerana.collaboration_service.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.service.CollabMetrics;
+import com.veerana.collaboration_service.service.CursorCoalescer;
+import com.veerana.collaboration_service.service.DocumentAccessService;
+import com.veerana.collaboration_service.service.DocumentSnapshotService;
+import com.veerana.collaboration_service.service.OpLogService;
+import com.veerana.collaboration_service.service.OperationalTransformService;
 import com.veerana.collaboration_service.service.PresenceService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.ChannelTopic;
-import org.springframework.data.redis.listener.RedisMessageListenerContainer;
-import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class CollabWebSocketHandler extends TextWebSocketHandler {
+public class CollabWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
 
     private final ObjectMapper objectMapper;
-    private final RedisTemplate<String, CollabMessage> redisTemplate;
-    private final RedisMessageListenerContainer listenerContainer;
     private final PresenceService presenceService;
-
-    // documentId → set of active WebSocket sessions
-    private final Map<String, Set<WebSocketSession>> rooms = new ConcurrentHashMap<>();
+    private final OperationalTransformService otService;
+    private final TaskExecutor collabSendExecutor;
+    private final CursorCoalescer cursorCoalescer;
+    private final BinaryFrameCodec binaryCodec;
+    private final OpLogService opLogService;
+    private final DocumentSnapshotService snapshotService;
+    private final RoomDispatcher roomDispatcher;
+    private final CollabMetrics metrics;
+    private final DocumentAccessService accessService;
+    private final FrameCompressor compressor;
+    private final FrameEncoder encoder;
+    private final OpLogReplayer replayer;
+    private final RoomRouter router;
+    private final SessionDrainer drainer;
+
+    @Value("${collab.send.queue-capacity:256}")
+    private int sendQueueCapacity;
+
+    // Longest a single write may block before the session is closed
+    @Value("${collab.send.time-limit-ms:10000}")
+    private long sendTimeLimitMs;
+
+    @Value("${collab.send.overflow-policy:DROP_CURSOR}")
+    private SessionOutbound.OverflowPolicy overflowPolicy;
+
+    @Value("${collab.cursor.coalesce:true}")
+    private boolean coalesceCursors;
+
+    @Value("${collab.binary.enabled:true}")
+    private boolean binaryEnabled;
+
+    @Value("${collab.presence.timeout-ms:30000}")
+    private long presenceTimeoutMs;
+
+    // Read-only sessions get at most one cursor frame per interval
+    @Value("${collab.viewer.cursor-interval-ms:250}")
+    private long viewerCursorIntervalMs;
+
+    @Value("${collab.oplog.enabled:true}")
+    private boolean opLogEnabled;
+
+    // documentId → outbound queues of the active WebSocket sessions
+    private final Map<String, RoomSessions> rooms = new ConcurrentHashMap<>();
+
+    // Striped locks serializing room open/close per documentId, so a join cannot
+    // land in a room that a concurrent last-leave is tearing down
+    private static final int ROOM_LOCKS = 64;
+    private final Object[] roomLocks = Stream.generate(Object::new).limit(ROOM_LOCKS).toArray();
+
+    // sessionId → outbound queue
+    private final Map<String, SessionOutbound> outbounds = new ConcurrentHashMap<>();
 
     // sessionId → documentId
     private final Map<String, String> sessionRooms = new ConcurrentHashMap<>();
@@ -42,8 +105,27 @@ public class CollabWebSocketHandler extends TextWebSocketHandler {
     // sessionId → email
     private final Map<String, String> sessionEmails = new ConcurrentHashMap<>();
 
-    // documentId → Redis listener (one per document room)
-    private final Map<String, MessageListener> listeners = new ConcurrentHashMap<>();
+    @PostConstruct
+    void registerGauges() {
+        metrics.gauge("collab.rooms", "Rooms with at least one session on this node", rooms::size);
+        metrics.gauge("collab.sessions", "Open WebSocket sessions on this node", outbounds::size);
+    }
+
+    // Messages for rooms hosted here, from Redis or published locally, fan out through broadcastToRoom
+    @PostConstruct
+    void startRouting() {
+        router.start(new RoomRouter.Delivery() {
+            @Override
+            public boolean hosts(String documentId) {
+                return rooms.containsKey(documentId);
+            }
+
+            @Override
+            public void deliver(String documentId, byte[] json, RoomRouter.FrameHeader header) throws IOException {
+                broadcastToRoom(documentId, json, header);
+            }
+        });
+    }
 
     // =========================
     // CONNECTION OPENED
@@ -60,16 +142,49 @@ public class CollabWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
+        // Slipped past the handshake check while the drain started
+        if (drainer.isDraining()) {
+            session.close(CloseStatus.SERVICE_RESTARTED);
+            return;
+        }
+
+        // ?since=<streamId>: client is resuming — hold live frames until the replay is queued
+        String since = opLogEnabled ? extractSince(session) : null;
+
+        // VIEWER permission → read-only session (resolved once, cached per document and user)
+        boolean readOnly = accessService.resolve(documentId, email) == DocumentAccessService.Access.VIEW;
+
         // Add to in-memory room
-        rooms.computeIfAbsent(documentId, k -> new CopyOnWriteArraySet<>()).add(session);
+        WireFormat wire = WireFormat.of(session.getAcceptedProtocol());
+        SessionOutbound outbound = new SessionOutbound(
+                session, wire, collabSendExecutor, sendQueueCapacity, overflowPolicy, metrics, readOnly, sendTimeLimitMs);
+        if (since != null) outbound.hold();
+        outbounds.put(session.getId(), outbound);
         sessionRooms.put(session.getId(), documentId);
         sessionEmails.put(session.getId(), email);
 
-        // Presence in Redis
-        presenceService.userJoined(documentId, email);
+        boolean opened = false;
+        synchronized (roomLock(documentId)) {
+            RoomSessions room = rooms.get(documentId);
+            if (room == null) {
+                room = new RoomSessions();
+                rooms.put(documentId, room);
+                opened = true;
+            }
+            room.add(outbound);
+            metrics.roomSize(room.size());
 
-        // Subscribe to Redis channel for this document (idempotent)
-        subscribeToRedisChannel(documentId);
+            // Subscribe to Redis channel for this document (idempotent)
+            router.subscribe(documentId);
+        }
+        if (opened) {
+            // Registry and snapshot I/O run outside the stripe lock, queued per room so they
+            // stay in order with a concurrent close and ahead of the room's first messages
+            roomDispatcher.execute(documentId, () -> openRoom(documentId));
+        }
+
+        // Presence in Redis (also returns the current list, usually from the local cache)
+        Set<String> present = presenceService.userJoined(documentId, email);
 
         // Broadcast JOIN to room
         CollabMessage joinMsg = CollabMessage.builder()
@@ -79,19 +194,23 @@ public class CollabWebSocketHandler extends TextWebSocketHandler {
                 .content(email + " joined")
                 .timestamp(System.currentTimeMillis())
                 .build();
-        publishToRedis(documentId, joinMsg);
+        publish(documentId, joinMsg);
 
-        // Send current presence list only to the joining user
-        Set<String> present = presenceService.getPresence(documentId);
+        // Send current presence list only to the joining user; later changes arrive as JOIN/LEAVE deltas
         CollabMessage presenceMsg = CollabMessage.builder()
                 .type("PRESENCE")
                 .documentId(documentId)
                 .userEmail(email)
                 .content(String.join(",", present))
+                .revision(otService.currentRevision(documentId))
                 .timestamp(System.currentTimeMillis())
                 .build();
         sendToSession(session, presenceMsg);
 
+        if (since != null) {
+            replayer.replay(outbound, documentId, email, since);
+        }
+
         log.info("User {} joined document {}", email, documentId);
     }
 
@@ -100,20 +219,99 @@ public class CollabWebSocketHandler extends TextWebSocketHandler {
     // =========================
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        if (!sessionRooms.containsKey(session.getId()) || dropReadOnly(session)) return;
+        handleInbound(session, objectMapper.readValue(message.getPayload(), CollabMessage.class));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        if (!sessionRooms.containsKey(session.getId()) || dropReadOnly(session)) return;
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (outbound != null && outbound.getWireFormat() == WireFormat.JSON_DEFLATE) {
+            // Large JSON frame sent deflated
+            handleInbound(session, objectMapper.readValue(
+                    compressor.inflate(message.getPayload()), CollabMessage.class));
+            return;
+        }
+        CollabMessage msg;
+        try {
+            msg = binaryCodec.decode(compressor.unwrapBinary(message.getPayload()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Malformed binary frame from session {}: {}", session.getId(), e.getMessage());
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+        handleInbound(session, msg);
+    }
+
+    // Viewers cannot edit or move a shared cursor — drop their frames before parsing
+    private boolean dropReadOnly(WebSocketSession session) {
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (outbound == null || !outbound.isReadOnly()) return false;
+        outbound.markAlive();
+        metrics.viewerFrameDropped();
+        return true;
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (outbound != null) outbound.markAlive();
+    }
+
+    private void handleInbound(WebSocketSession session, CollabMessage msg) {
 
         String documentId = sessionRooms.get(session.getId());
         String email      = sessionEmails.get(session.getId());
 
         if (documentId == null || email == null) return;
 
-        CollabMessage msg = objectMapper.readValue(message.getPayload(), CollabMessage.class);
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (outbound != null) outbound.markAlive();
+        metrics.messageIn(msg.getType());
 
         // Override with server-trusted values — client cannot spoof these
         msg.setDocumentId(documentId);
         msg.setUserEmail(email);
         msg.setTimestamp(System.currentTimeMillis());
 
-        publishToRedis(documentId, msg);
+        // CURSOR: keep only the latest position, flushed as one CURSORS batch per tick
+        if (coalesceCursors && "CURSOR".equals(msg.getType())) {
+            cursorCoalescer.offer(documentId, email, msg.getContent());
+            return;
+        }
+
+        // Op-based EDIT: rebase onto the server revision, broadcast only the delta
+        if ("EDIT".equals(msg.getType()) && msg.getOps() != null) {
+            long baseRevision = msg.getRevision() != null ? msg.getRevision() : 0;
+            OperationalTransformService.CommittedEdit edit =
+                    otService.apply(documentId, baseRevision, msg.getOps());
+
+            if (edit == null) {
+                sendToSession(session, CollabMessage.builder()
+                        .type("RESYNC")
+                        .documentId(documentId)
+                        .userEmail(email)
+                        .revision(otService.currentRevision(documentId))
+                        .timestamp(System.currentTimeMillis())
+                        .build());
+                return;
+            }
+
+            msg.setContent(null);
+            msg.setOps(edit.ops());
+            msg.setRevision(edit.revision());
+        }
+
+        if (opLogEnabled && "EDIT".equals(msg.getType())) {
+            try {
+                msg.setStreamId(opLogService.append(documentId, objectMapper.writeValueAsBytes(msg)));
+            } catch (IOException e) {
+                log.error("Error appending to op log for document {}", documentId, e);
+            }
+        }
+
+        publish(documentId, msg);
     }
 
     // =========================
@@ -124,83 +322,269 @@ public class CollabWebSocketHandler extends TextWebSocketHandler {
 
         String documentId = sessionRooms.remove(session.getId());
         String email      = sessionEmails.remove(session.getId());
+        SessionOutbound outbound = outbounds.remove(session.getId());
 
+        if (outbound != null) outbound.close();
+        boolean drained = drainer.sessionClosed(session.getId(), documentId, email);
         if (documentId == null) return;
 
-        Set<WebSocketSession> room = rooms.get(documentId);
-        if (room != null) {
-            room.remove(session);
-            if (room.isEmpty()) {
-                rooms.remove(documentId);
-                unsubscribeFromRedisChannel(documentId);
+        boolean closed = false;
+        synchronized (roomLock(documentId)) {
+            RoomSessions room = rooms.get(documentId);
+            if (room != null) {
+                room.remove(outbound);
+                if (room.isEmpty()) {
+                    rooms.remove(documentId);
+                    router.unsubscribe(documentId);
+                    otService.release(documentId);
+                    binaryCodec.release(documentId);
+                    presenceService.release(documentId);
+                    closed = true;
+                }
             }
         }
+        if (closed) {
+            roomDispatcher.execute(documentId, () -> closeRoom(documentId));
+        }
 
         if (email != null) {
+            cursorCoalescer.forget(documentId, email);
+        }
+        // While draining, the batched presence cleanup announces who left for good
+        if (email != null && !drained) {
             presenceService.userLeft(documentId, email);
-
-            CollabMessage leaveMsg = CollabMessage.builder()
-                    .type("LEAVE")
-                    .documentId(documentId)
-                    .userEmail(email)
-                    .content(email + " left")
-                    .timestamp(System.currentTimeMillis())
-                    .build();
-            publishToRedis(documentId, leaveMsg);
+            publishLeave(documentId, email);
         }
 
         log.info("User {} left document {}", email, documentId);
     }
 
+    // First local session: advertise this node and start the snapshot copy
+    private void openRoom(String documentId) {
+        router.roomOpened(documentId);
+        snapshotService.open(documentId);
+    }
+
+    // Last local session left: stop receiving forwarded messages and write the snapshot back
+    private void closeRoom(String documentId) {
+        router.roomClosed(documentId);
+        snapshotService.close(documentId);
+    }
+
     // =========================
-    // REDIS PUB/SUB
+    // PUBLISH
     // =========================
-    private void publishToRedis(String documentId, CollabMessage msg) {
-        redisTemplate.convertAndSend("collab:" + documentId, msg);
+    private void publish(String documentId, CollabMessage msg) {
+        router.publish(documentId, msg);
     }
 
-    private void subscribeToRedisChannel(String documentId) {
-        // computeIfAbsent makes this atomic — fixes the race condition
-        listeners.computeIfAbsent(documentId, key -> {
-            MessageListener listener = (message, pattern) -> {
-                try {
-                    CollabMessage msg = objectMapper.readValue(message.getBody(), CollabMessage.class);
-                    broadcastToRoom(documentId, msg);
-                } catch (Exception e) {
-                    log.error("Error processing Redis message for document {}", documentId, e);
-                }
-            };
-            listenerContainer.addMessageListener(listener, new ChannelTopic("collab:" + documentId));
-            return listener;
+    private void publishLeave(String documentId, String email) {
+        publish(documentId, CollabMessage.builder()
+                .type("LEAVE")
+                .documentId(documentId)
+                .userEmail(email)
+                .content(email + " left")
+                .timestamp(System.currentTimeMillis())
+                .build());
+    }
+
+    // =========================
+    // HEARTBEAT / PRESENCE SWEEP
+    // =========================
+
+    // Pings every local session, closes the ones that stopped answering, and refreshes
+    // presence for the live ones in a single pipeline
+    @Scheduled(fixedRateString = "${collab.presence.heartbeat-ms:10000}")
+    public void heartbeat() {
+        // Scores stop at the drain start, which is what the batched presence cleanup compares against
+        if (drainer.isDraining()) return;
+        long cutoff = System.currentTimeMillis() - presenceTimeoutMs;
+        Map<String, Set<String>> live = new HashMap<>();
+
+        outbounds.forEach((sessionId, outbound) -> {
+            WebSocketSession session = outbound.getSession();
+            if (outbound.getLastSeen() < cutoff) {
+                log.info("Closing unresponsive session {}", sessionId);
+                collabSendExecutor.execute(() -> closeQuietly(session, CloseStatus.SESSION_NOT_RELIABLE));
+                return;
+            }
+            String documentId = sessionRooms.get(sessionId);
+            String email      = sessionEmails.get(sessionId);
+            if (documentId != null && email != null) {
+                live.computeIfAbsent(documentId, k -> new HashSet<>()).add(email);
+            }
+            outbound.enqueue(new PingMessage(), "PING", null);
         });
+
+        try {
+            presenceService.heartbeat(live);
+        } catch (Exception e) {
+            log.error("Error refreshing presence heartbeats", e);
+        }
+    }
+
+    // Closes sessions whose current write has been blocked past the send time limit
+    @Scheduled(fixedRateString = "${collab.send.time-limit-check-ms:1000}")
+    public void checkSendTimeouts() {
+        long now = System.currentTimeMillis();
+        outbounds.values().forEach(outbound -> outbound.closeIfSendStuck(now));
     }
 
-    private void unsubscribeFromRedisChannel(String documentId) {
-        MessageListener listener = listeners.remove(documentId);
-        if (listener != null) {
-            listenerContainer.removeMessageListener(listener);
+    // Evicts members whose heartbeats stopped (e.g. their node crashed) and announces LEAVE
+    @Scheduled(fixedRateString = "${collab.presence.sweep-ms:15000}")
+    public void sweepPresence() {
+        if (drainer.isDraining()) return;
+        for (String documentId : rooms.keySet()) {
+            try {
+                for (String email : presenceService.sweep(documentId)) {
+                    publishLeave(documentId, email);
+                }
+            } catch (Exception e) {
+                log.error("Error sweeping presence for document {}", documentId, e);
+            }
+        }
+    }
+
+    // =========================
+    // MOVING SESSIONS (drain, rebalance)
+    // =========================
+
+    // Shutdown: every session gets RECONNECT and is closed (see SessionDrainer)
+    public void drain(long minDelayMs, long jitterMs, long deadlineMs) {
+        drainer.drain(outbounds,
+                (outbound, delay) -> reconnect(outbound, sessionRooms.get(outbound.getSession().getId()), delay),
+                this::publishLeave, minDelayMs, jitterMs, deadlineMs);
+    }
+
+    // Tells the client to reconnect after `delayMs`, through the gateway, to whichever node owns the room then
+    void reconnect(SessionOutbound outbound, String documentId, long delayMs) {
+        sendToSession(outbound.getSession(), CollabMessage.builder()
+                .type("RECONNECT")
+                .documentId(documentId)
+                .content(String.valueOf(delayMs))     // ms to wait before reconnecting
+                .timestamp(System.currentTimeMillis())
+                .build());
+    }
+
+    // Live view of the rooms hosted here
+    Map<String, RoomSessions> rooms() {
+        return Collections.unmodifiableMap(rooms);
+    }
+
+    private void closeQuietly(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("Error closing session {}", session.getId(), e);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${collab.cursor.tick-ms:33}")
+    public void flushCursors() {
+        cursorCoalescer.drain((documentId, cursors) -> publish(documentId,
+                CollabMessage.builder()
+                        .type("CURSORS")
+                        .documentId(documentId)
+                        .cursors(cursors)
+                        .timestamp(System.currentTimeMillis())
+                        .build()));
+    }
+
+    // Trailing edge of the viewer cursor throttle
+    @Scheduled(fixedRateString = "${collab.cursor.tick-ms:33}")
+    public void flushViewerCursors() {
+        long now = System.currentTimeMillis();
+        for (SessionOutbound o : outbounds.values()) {
+            if (o.isReadOnly()) o.flushDeferredCursors(now, viewerCursorIntervalMs);
         }
     }
 
     // =========================
     // BROADCAST TO ROOM
     // =========================
-    private void broadcastToRoom(String documentId, CollabMessage msg) {
-        Set<WebSocketSession> room = rooms.get(documentId);
+    // One pre-built frame per wire format, shared by every recipient — no per-session encoding.
+    // Only enqueues; each session's queue is drained on the send executor.
+    private void broadcastToRoom(String documentId, byte[] json, RoomRouter.FrameHeader header) throws IOException {
+        RoomSessions room = rooms.get(documentId);
         if (room == null) return;
-        room.forEach(s -> sendToSession(s, msg));
+
+        long start = System.nanoTime();
+        int recipients = 0;
+
+        // Keep the node-local presence list current from the deltas passing through
+        if ("JOIN".equals(header.type())) {
+            presenceService.applyJoin(documentId, header.userEmail());
+        } else if ("LEAVE".equals(header.type())) {
+            presenceService.applyLeave(documentId, header.userEmail());
+        }
+
+        // Every EDIT the room receives, local or forwarded, feeds the snapshot copy if this node writes it
+        CollabMessage parsed = null;
+        if ("EDIT".equals(header.type()) && snapshotService.accepts(documentId)) {
+            parsed = objectMapper.readValue(json, CollabMessage.class);
+            if (parsed.getOps() != null && parsed.getRevision() != null) {
+                snapshotService.apply(documentId, parsed.getRevision(), parsed.getOps());
+            }
+        }
+
+        TextMessage textFrame = new TextMessage(json);
+        BinaryMessage binaryFrame = null;
+        WebSocketMessage<?> deflatedFrame = null;
+        boolean cursor = "CURSOR".equals(header.type()) || "CURSORS".equals(header.type());
+        long now = System.currentTimeMillis();
+
+        for (SessionOutbound o : room) {
+            WebSocketMessage<?> frame = textFrame;
+            if (o.isBinary()) {
+                if (binaryFrame == null) {
+                    if (parsed == null) parsed = objectMapper.readValue(json, CollabMessage.class);
+                    binaryFrame = encoder.binary(documentId, parsed);
+                }
+                frame = binaryFrame;
+            } else if (o.getWireFormat() == WireFormat.JSON_DEFLATE) {
+                if (deflatedFrame == null) deflatedFrame = encoder.deflatedJson(json, textFrame);
+                frame = deflatedFrame;
+            }
+            if (cursor && o.isReadOnly()) {
+                // Lighter stream for viewers: throttled cursors, the newest held back for the next window
+                o.offerViewerCursor(frame, header.type(), header.userEmail(), now, viewerCursorIntervalMs);
+            } else {
+                o.enqueue(frame, header.type(), header.userEmail());
+            }
+            recipients++;
+        }
+
+        metrics.broadcastTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        metrics.fanOut(recipients);
+        metrics.messagesOut(header.type(), recipients);
+    }
+
+    private Object roomLock(String documentId) {
+        int h = documentId.hashCode();
+        return roomLocks[(h ^ (h >>> 16)) & (ROOM_LOCKS - 1)];
     }
 
     private void sendToSession(WebSocketSession session, CollabMessage msg) {
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (outbound == null) return;
         try {
-            if (session.isOpen()) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(msg)));
-            }
+            outbound.enqueue(encoder.encode(outbound.getWireFormat(), msg.getDocumentId(), msg),
+                    msg.getType(), msg.getUserEmail());
         } catch (IOException e) {
-            log.error("Error sending to session {}", session.getId(), e);
+            log.error("Error encoding message for session {}", session.getId(), e);
         }
     }
 
+    // Offered during the handshake; clients that request none of them get plain JSON
+    @Override
+    public List<String> getSubProtocols() {
+        List<String> protocols = new ArrayList<>();
+        if (binaryEnabled) protocols.add(BinaryFrameCodec.BINARY_PROTOCOL);
+        if (compressor.isEnabled()) protocols.add(FrameCompressor.DEFLATE_JSON_PROTOCOL);
+        protocols.add(BinaryFrameCodec.JSON_PROTOCOL);
+        return protocols;
+    }
+
     // =========================
     // HELPERS
     // =========================
@@ -212,6 +596,13 @@ public class CollabWebSocketHandler extends TextWebSocketHandler {
         return parts.length >= 4 ? parts[3] : null;
     }
 
+    private String extractSince(WebSocketSession session) {
+        URI uri = session.getUri();
+        if (uri == null) return null;
+        String since = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("since");
+        return (since != null && !since.isBlank()) ? since : null;
+    }
+
     /**
      * ✅ SECURITY FIX: reads email from X-User-Email header injected by the gateway.
      * The gateway validates the JWT and sets this header — clients cannot forge it
@@ -0,0 +1,19 @@
+package com.veerana.collaboration_service.handler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// OUT_OF_SERVICE (503) while the node drains, so the gateway's ring probe stops routing here
+@Component("drain")
+@RequiredArgsConstructor
+public class DrainHealthIndicator implements HealthIndicator {
+
+    private final SessionDrainer drainer;
+
+    @Override
+    public Health health() {
+        return drainer.isDraining() ? Health.outOfService().build() : Health.up().build();
+    }
+}
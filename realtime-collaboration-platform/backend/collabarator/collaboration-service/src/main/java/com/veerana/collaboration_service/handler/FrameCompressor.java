@@ -0,0 +1,157 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.service.CollabMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Application-level compression for large frames, with a size threshold so
+ * CURSOR and presence traffic is never touched.
+ *
+ * Payloads are raw DEFLATE (RFC 1951, no zlib header) primed with the shared
+ * dictionary {@code compression/collab-v1.dict}, which holds the JSON skeleton
+ * of CollabMessage and common prose — clients bundle the same file byte for byte.
+ * <ul>
+ *   <li>"collab.v1.json+deflate": small frames stay JSON text frames; large ones
+ *       are sent as a binary frame holding the deflated JSON.</li>
+ *   <li>"collab.v1.bin": a large frame is {@link #DEFLATED} followed by the
+ *       deflated varint frame (type codes never reach that value).</li>
+ * </ul>
+ * Both directions use the same format. Plain JSON clients rely on permessage-deflate instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class FrameCompressor {
+
+    public static final String DEFLATE_JSON_PROTOCOL = "collab.v1.json+deflate";
+    public static final int DEFLATED = 0xFF;
+
+    private static final String DICTIONARY_RESOURCE = "compression/collab-v1.dict";
+
+    private final CollabMetrics metrics;
+
+    @Value("${collab.compression.enabled:true}")
+    private boolean enabled;
+
+    // Frames smaller than this are sent as-is
+    @Value("${collab.compression.threshold-bytes:1024}")
+    private int thresholdBytes;
+
+    @Value("${collab.compression.dictionary:true}")
+    private boolean useDictionary;
+
+    @Value("${collab.compression.level:6}")
+    private int level;
+
+    // Guards against decompression bombs from clients
+    @Value("${collab.compression.max-inflated-bytes:1048576}")
+    private int maxInflatedBytes;
+
+    private byte[] dictionary;
+
+    // Deflater/Inflater hold native buffers — reuse them instead of one per frame or per thread
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        try (InputStream in = new ClassPathResource(DICTIONARY_RESOURCE).getInputStream()) {
+            dictionary = in.readAllBytes();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Deflated payload, or null when compression is off, the payload is under
+     * the threshold, or deflating would not make it smaller.
+     */
+    public byte[] compress(byte[] payload) {
+        if (!enabled || payload.length < thresholdBytes) return null;
+
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) deflater = new Deflater(level, true);
+        try {
+            if (useDictionary) deflater.setDictionary(dictionary);
+            deflater.setInput(payload);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2);
+            byte[] buffer = new byte[Math.min(payload.length, 8192)];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                if (out.size() >= payload.length) return null;
+            }
+            metrics.compressed(payload.length, out.size());
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+        }
+    }
+
+    // Binary subprotocol: marker + deflated frame when it pays off, otherwise the frame itself
+    public byte[] wrapBinary(byte[] frame) {
+        byte[] deflated = compress(frame);
+        if (deflated == null) return frame;
+        byte[] wrapped = new byte[deflated.length + 1];
+        wrapped[0] = (byte) DEFLATED;
+        System.arraycopy(deflated, 0, wrapped, 1, deflated.length);
+        return wrapped;
+    }
+
+    public ByteBuffer unwrapBinary(ByteBuffer frame) throws IOException {
+        if (!frame.hasRemaining() || (frame.get(frame.position()) & 0xFF) != DEFLATED) return frame;
+        ByteBuffer body = frame.duplicate();
+        body.position(body.position() + 1);
+        return ByteBuffer.wrap(inflate(body));
+    }
+
+    public byte[] inflate(ByteBuffer payload) throws IOException {
+        byte[] input = new byte[payload.remaining()];
+        payload.duplicate().get(input);
+
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) inflater = new Inflater(true);
+        try {
+            // Raw inflate never asks for the dictionary — it has to be set up front
+            if (useDictionary) inflater.setDictionary(dictionary);
+            inflater.setInput(input);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflate frame");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > maxInflatedBytes) {
+                    throw new IOException("Inflated frame exceeds " + maxInflatedBytes + " bytes");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed deflate frame", e);
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+}
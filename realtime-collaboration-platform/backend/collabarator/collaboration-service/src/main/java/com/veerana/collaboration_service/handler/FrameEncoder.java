@@ -0,0 +1,46 @@
+package com.veerana.collaboration_service.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+
+/**
+ * Turns a CollabMessage into the frame a session's wire format expects:
+ * JSON text, compact binary, or JSON deflated once it is large enough.
+ */
+@Component
+@RequiredArgsConstructor
+public class FrameEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final BinaryFrameCodec binaryCodec;
+    private final FrameCompressor compressor;
+
+    // One frame for one session in its wire format (large frames compressed where negotiated)
+    public WebSocketMessage<?> encode(WireFormat wire, String documentId, CollabMessage msg) throws IOException {
+        return switch (wire) {
+            case BINARY -> binary(documentId, msg);
+            case JSON_DEFLATE -> {
+                byte[] json = objectMapper.writeValueAsBytes(msg);
+                yield deflatedJson(json, new TextMessage(json));
+            }
+            case JSON -> new TextMessage(objectMapper.writeValueAsString(msg));
+        };
+    }
+
+    public BinaryMessage binary(String documentId, CollabMessage msg) {
+        return new BinaryMessage(compressor.wrapBinary(binaryCodec.encode(documentId, msg)));
+    }
+
+    // Deflated copy of a JSON frame, or the plain frame when it is below the threshold
+    public WebSocketMessage<?> deflatedJson(byte[] json, TextMessage plain) {
+        byte[] deflated = compressor.compress(json);
+        return deflated != null ? new BinaryMessage(deflated) : plain;
+    }
+}
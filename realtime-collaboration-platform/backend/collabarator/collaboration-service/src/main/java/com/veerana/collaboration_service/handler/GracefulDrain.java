@@ -0,0 +1,53 @@
+package com.veerana.collaboration_service.handler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the WebSocket sessions when the application shuts down (SIGTERM on a
+ * rolling deploy). The drain sends and closes on its own threads, and the
+ * pools that write back emptied rooms keep taking tasks until it is done (see
+ * ExecutorConfig), so it does not rely on running before other listeners.
+ *
+ * While it runs, health reports OUT_OF_SERVICE (see DrainHealthIndicator), so
+ * the gateway's ring probe drops this node; no client is told to reconnect
+ * before one probe interval has passed, so none is routed back here.
+ *
+ * Keep the pod's termination grace period above {@code collab.drain.deadline-ms}
+ * plus {@code collab.shutdown.await-seconds}.
+ */
+@Component
+@RequiredArgsConstructor
+public class GracefulDrain {
+
+    private final CollabWebSocketHandler handler;
+
+    @Value("${collab.drain.enabled:true}")
+    private boolean enabled;
+
+    // Earliest reconnect: the gateway needs one ring probe to see this node go OUT_OF_SERVICE
+    @Value("${collab.drain.min-reconnect-delay-ms:${collab.ring.probe-interval-ms:5000}}")
+    private long minReconnectDelayMs;
+
+    // On top of that, clients reconnect at a random delay in [0, jitter] — spreads the herd
+    @Value("${collab.drain.reconnect-jitter-ms:10000}")
+    private long reconnectJitterMs;
+
+    // Hard stop: anything still open is closed then
+    @Value("${collab.drain.deadline-ms:20000}")
+    private long deadlineMs;
+
+    @EventListener(ContextClosedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onShutdown() {
+        if (enabled) {
+            long minDelay = Math.min(minReconnectDelayMs, deadlineMs);
+            handler.drain(minDelay, Math.min(reconnectJitterMs, deadlineMs - minDelay), deadlineMs);
+        }
+    }
+}
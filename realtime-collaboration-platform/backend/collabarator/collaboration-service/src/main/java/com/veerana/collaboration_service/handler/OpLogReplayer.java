@@ -0,0 +1,76 @@
+package com.veerana.collaboration_service.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.service.OpLogService;
+import com.veerana.collaboration_service.service.OperationalTransformService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catches a resuming session (?since=<streamId>) up from the op log. The
+ * session is held while connecting; the replay is queued ahead of the live
+ * frames buffered meanwhile and the session resumes, or it gets a RESYNC when
+ * the gap can no longer be replayed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OpLogReplayer {
+
+    private final OpLogService opLogService;
+    private final OperationalTransformService otService;
+    private final ObjectMapper objectMapper;
+    private final FrameEncoder encoder;
+
+    // Queues every logged EDIT after `since` ahead of the live frames buffered meanwhile.
+    // Clients drop live frames whose streamId they already received through the replay.
+    public void replay(SessionOutbound outbound, String documentId, String email, String since) {
+        List<WebSocketMessage<?>> frames = new ArrayList<>();
+        try {
+            OpLogService.Replay replay = opLogService.replaySince(documentId, since);
+            if (replay.complete()) {
+                for (OpLogService.Entry entry : replay.entries()) {
+                    CollabMessage msg = objectMapper.readValue(entry.json(), CollabMessage.class);
+                    msg.setStreamId(entry.id());
+                    frames.add(encoder.encode(outbound.getWireFormat(), documentId, msg));
+                }
+            } else {
+                // Missed more than the log still holds — reload the document instead
+                frames.add(resyncFrame(outbound, documentId, email));
+            }
+            log.debug("Replayed {} frames since {} for document {}", frames.size(), since, documentId);
+        } catch (Exception e) {
+            // Malformed or unknown since id, Redis down, bad entry: the gap is unknown, so reload
+            log.error("Error replaying op log since {} for document {}", since, documentId, e);
+            frames.clear();
+            try {
+                frames.add(resyncFrame(outbound, documentId, email));
+            } catch (IOException encodeError) {
+                log.error("Error encoding RESYNC for document {}", documentId, encodeError);
+                outbound.closeWhenFlushed(CloseStatus.SERVER_ERROR);
+            }
+        } finally {
+            outbound.resume(frames, "EDIT");
+        }
+    }
+
+    private WebSocketMessage<?> resyncFrame(SessionOutbound outbound, String documentId, String email)
+            throws IOException {
+        CollabMessage resync = CollabMessage.builder()
+                .type("RESYNC")
+                .documentId(documentId)
+                .userEmail(email)
+                .revision(otService.currentRevision(documentId))
+                .timestamp(System.currentTimeMillis())
+                .build();
+        return encoder.encode(outbound.getWireFormat(), documentId, resync);
+    }
+}
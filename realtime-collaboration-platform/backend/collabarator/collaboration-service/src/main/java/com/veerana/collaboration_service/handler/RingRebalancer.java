@@ -0,0 +1,50 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.service.CollabHashRing;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Moves rooms whose ring owner is now another node (a node joined or came
+ * back) there: their sessions get RECONNECT and are closed, and the gateway
+ * routes them to the owner.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RingRebalancer {
+
+    private final CollabHashRing hashRing;
+    private final CollabWebSocketHandler handler;
+    private final SessionDrainer drainer;
+
+    // Clients of a room that moved to another node reconnect at a random delay in [0, jitter]
+    @Value("${collab.ring.reconnect-jitter-ms:2000}")
+    private long reconnectJitterMs;
+
+    @Scheduled(fixedRateString = "${collab.ring.probe-interval-ms:5000}")
+    public void rebalance() {
+        if (drainer.isDraining() || !hashRing.isEnabled()) return;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, RoomSessions> entry : handler.rooms().entrySet()) {
+            String documentId = entry.getKey();
+            if (!hashRing.ownedElsewhere(documentId, now)) continue;
+
+            int moved = 0;
+            for (SessionOutbound outbound : entry.getValue()) {
+                long delay = reconnectJitterMs > 0 ? ThreadLocalRandom.current().nextLong(reconnectJitterMs + 1) : 0;
+                handler.reconnect(outbound, documentId, delay);
+                outbound.closeWhenFlushed(CloseStatus.SERVICE_RESTARTED);
+                moved++;
+            }
+            log.info("Document {} moved to another node on the ring — reconnecting {} sessions", documentId, moved);
+        }
+    }
+}
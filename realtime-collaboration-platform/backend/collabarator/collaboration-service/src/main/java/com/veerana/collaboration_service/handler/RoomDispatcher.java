@@ -0,0 +1,70 @@
+package com.veerana.collaboration_service.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs Redis message handling per room, in arrival order, on the dispatch
+ * executor — under NODE_AFFINITY routing also the room's local publishes, so
+ * every frame of a room takes the same path. Rooms run independently of each
+ * other, and a busy room never holds the Redis listener thread.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomDispatcher {
+
+    // Tasks run per turn before the room yields its thread
+    private static final int BATCH = 64;
+
+    private final TaskExecutor collabDispatchExecutor;
+
+    // documentId → pending tasks; a mapping exists exactly while a runner is active
+    private final Map<String, Deque<Runnable>> queues = new ConcurrentHashMap<>();
+
+    public void execute(String documentId, Runnable task) {
+        boolean[] start = new boolean[1];
+        queues.compute(documentId, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                start[0] = true;
+            }
+            queue.addLast(task);
+            return queue;
+        });
+        if (start[0]) {
+            collabDispatchExecutor.execute(() -> run(documentId));
+        }
+    }
+
+    private void run(String documentId) {
+        for (int i = 0; i < BATCH; i++) {
+            Runnable task = poll(documentId);
+            if (task == null) return;
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Error dispatching message for document {}", documentId, e);
+            }
+        }
+        // Still busy — requeue so other rooms get a turn
+        collabDispatchExecutor.execute(() -> run(documentId));
+    }
+
+    // Next task, or null after removing the mapping when the room has drained
+    private Runnable poll(String documentId) {
+        Runnable[] next = new Runnable[1];
+        queues.computeIfPresent(documentId, (k, queue) -> {
+            next[0] = queue.pollFirst();
+            return next[0] == null ? null : queue;
+        });
+        return next[0];
+    }
+}
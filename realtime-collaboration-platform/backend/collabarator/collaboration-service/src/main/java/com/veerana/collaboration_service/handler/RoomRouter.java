@@ -0,0 +1,222 @@
+package com.veerana.collaboration_service.handler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.service.CollabMetrics;
+import com.veerana.collaboration_service.service.RoomRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Carries room messages between the collaboration nodes over Redis, in the
+ * mode set by collab.redis.routing, and hands every message for a room hosted
+ * here to the local {@link Delivery} on the room's serial dispatcher.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomRouter {
+
+    public enum RedisRouting {
+        // One ChannelTopic listener per active document (subscribe/unsubscribe as rooms open/close)
+        PER_DOCUMENT,
+        // One PatternTopic for every document; dispatched in-process via the rooms map
+        PATTERN,
+        // Deliver locally first; forward through Redis only to other nodes hosting the room
+        NODE_AFFINITY
+    }
+
+    // This node's side of the routing: which rooms it hosts and the fan-out to their sessions
+    public interface Delivery {
+        boolean hosts(String documentId);
+
+        void deliver(String documentId, byte[] json, FrameHeader header) throws IOException;
+    }
+
+    private static final String CHANNEL_PREFIX = "collab:";
+
+    private final ObjectMapper objectMapper;
+    private final RedisTemplate<String, CollabMessage> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RoomRegistry roomRegistry;
+    private final RoomDispatcher roomDispatcher;
+    private final CollabMetrics metrics;
+
+    @Value("${collab.redis.routing:PER_DOCUMENT}")
+    private RedisRouting redisRouting;
+
+    private Delivery delivery;
+
+    // documentId → Redis listener (one per document room, PER_DOCUMENT routing only)
+    private final Map<String, MessageListener> listeners = new ConcurrentHashMap<>();
+
+    // Called once by the handler; subscribes the shared listener of PATTERN and NODE_AFFINITY routing
+    public void start(Delivery delivery) {
+        this.delivery = delivery;
+        metrics.gauge("collab.redis.listeners", "Per-document Redis channel listeners", listeners::size);
+
+        if (redisRouting == RedisRouting.PATTERN) {
+            MessageListener listener = (message, pattern) -> {
+                String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+                String documentId = channel.substring(CHANNEL_PREFIX.length());
+                // Rooms not hosted on this node are simply not in the map
+                if (delivery.hosts(documentId)) {
+                    onRedisMessage(documentId, message);
+                }
+            };
+            listenerContainer.addMessageListener(listener, new PatternTopic(CHANNEL_PREFIX + "*"));
+        } else if (redisRouting == RedisRouting.NODE_AFFINITY) {
+            // Only messages forwarded by other nodes arrive here; the room is read from the frame
+            MessageListener listener = (message, pattern) -> onRedisMessage(null, message);
+            listenerContainer.addMessageListener(listener, new ChannelTopic(roomRegistry.nodeChannel()));
+        }
+    }
+
+    // =========================
+    // ROOM LIFECYCLE
+    // =========================
+
+    // Under the room's open lock: listen on the document channel (idempotent)
+    public void subscribe(String documentId) {
+        if (redisRouting == RedisRouting.PATTERN) return;
+
+        // computeIfAbsent makes this atomic — fixes the race condition
+        listeners.computeIfAbsent(documentId, key -> {
+            MessageListener listener = (message, pattern) -> onRedisMessage(documentId, message);
+            listenerContainer.addMessageListener(listener, new ChannelTopic(CHANNEL_PREFIX + documentId));
+            return listener;
+        });
+    }
+
+    public void unsubscribe(String documentId) {
+        MessageListener listener = listeners.remove(documentId);
+        if (listener != null) {
+            listenerContainer.removeMessageListener(listener);
+        }
+    }
+
+    // First local session: advertise this node so other nodes forward the room here
+    public void roomOpened(String documentId) {
+        if (redisRouting == RedisRouting.NODE_AFFINITY) {
+            roomRegistry.register(documentId);
+        }
+    }
+
+    // Last local session left: stop receiving forwarded messages
+    public void roomClosed(String documentId) {
+        if (redisRouting == RedisRouting.NODE_AFFINITY) {
+            roomRegistry.unregister(documentId);
+        }
+    }
+
+    // =========================
+    // PUBLISH / RECEIVE
+    // =========================
+    public void publish(String documentId, CollabMessage msg) {
+        metrics.publishTimer().record(() -> doPublish(documentId, msg));
+    }
+
+    private void doPublish(String documentId, CollabMessage msg) {
+        if (redisRouting != RedisRouting.NODE_AFFINITY) {
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + documentId, msg);
+            return;
+        }
+
+        // Local-first: encode once, deliver in-process, then forward the same bytes
+        // only to the other nodes that host this room (none for single-node rooms).
+        // Local frames take the room's serial dispatcher like forwarded ones, so each room fans out in one order
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(msg);
+            FrameHeader header = new FrameHeader(documentId, msg.getType(), msg.getUserEmail());
+            roomDispatcher.execute(documentId, () -> {
+                try {
+                    delivery.deliver(documentId, json, header);
+                } catch (IOException e) {
+                    log.error("Error broadcasting message for document {}", documentId, e);
+                }
+            });
+
+            Set<String> others = roomRegistry.otherNodes(documentId);
+            if (others.isEmpty()) return;
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                for (String node : others) {
+                    connection.publish(
+                            (RoomRegistry.NODE_CHANNEL_PREFIX + node).getBytes(StandardCharsets.UTF_8), json);
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            log.error("Error publishing message for document {}", documentId, e);
+        }
+    }
+
+    // The Redis body is already the JSON frame — wrap it once and fan it out as-is.
+    // documentId is null for node-addressed channels; it is then read from the frame.
+    // Fan-out runs on the room's serial dispatcher, never on the Redis listener thread.
+    private void onRedisMessage(String documentId, Message message) {
+        try {
+            byte[] body = message.getBody();
+            FrameHeader header = peekHeader(body);
+            String room = documentId != null ? documentId : header.documentId();
+            if (room == null) return;
+            roomDispatcher.execute(room, () -> {
+                try {
+                    delivery.deliver(room, body, header);
+                } catch (IOException e) {
+                    log.error("Error broadcasting Redis message for document {}", room, e);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error processing Redis message for document {}", documentId, e);
+        }
+    }
+
+    // Reads only the leading documentId/type/userEmail fields of a JSON frame, without binding it
+    private FrameHeader peekHeader(byte[] body) throws IOException {
+        String documentId = null;
+        String type = null;
+        String userEmail = null;
+        int seen = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new FrameHeader(null, null, null);
+            }
+            while (seen < 3 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("documentId".equals(field)) {
+                    documentId = parser.getValueAsString();
+                    seen++;
+                } else if ("type".equals(field)) {
+                    type = parser.getValueAsString();
+                    seen++;
+                } else if ("userEmail".equals(field)) {
+                    userEmail = parser.getValueAsString();
+                    seen++;
+                } else if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new FrameHeader(documentId, type, userEmail);
+    }
+
+    public record FrameHeader(String documentId, String type, String userEmail) {}
+}
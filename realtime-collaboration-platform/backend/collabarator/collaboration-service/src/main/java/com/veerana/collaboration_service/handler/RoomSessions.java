@@ -0,0 +1,119 @@
+package com.veerana.collaboration_service.handler;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Members of one room on this node.
+ *
+ * Sessions are spread over a fixed number of stripes, each an immutable array
+ * replaced on change (copy-on-write per stripe). A join or leave copies only
+ * its stripe — about n/16 entries instead of the whole room — so reconnect
+ * storms in large rooms stay cheap, while a broadcast still walks plain arrays
+ * without locking. Iteration sees each stripe as of when it is reached.
+ */
+public class RoomSessions implements Iterable<SessionOutbound> {
+
+    private static final int STRIPES = 16;
+    private static final SessionOutbound[] EMPTY = new SessionOutbound[0];
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    public RoomSessions() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void add(SessionOutbound outbound) {
+        if (stripeFor(outbound).add(outbound)) size.incrementAndGet();
+    }
+
+    public void remove(SessionOutbound outbound) {
+        if (stripeFor(outbound).remove(outbound)) size.decrementAndGet();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    public void forEach(Consumer<? super SessionOutbound> action) {
+        for (Stripe stripe : stripes) {
+            for (SessionOutbound o : stripe.members) {
+                action.accept(o);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<SessionOutbound> iterator() {
+        return new Iterator<>() {
+            private int stripe;
+            private SessionOutbound[] current = stripes[0].members;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (index == current.length) {
+                    if (++stripe == STRIPES) return false;
+                    current = stripes[stripe].members;
+                    index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public SessionOutbound next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current[index++];
+            }
+        };
+    }
+
+    private Stripe stripeFor(SessionOutbound outbound) {
+        int h = System.identityHashCode(outbound);
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+
+        private volatile SessionOutbound[] members = EMPTY;
+
+        synchronized boolean add(SessionOutbound outbound) {
+            SessionOutbound[] current = members;
+            for (SessionOutbound o : current) {
+                if (o == outbound) return false;
+            }
+            SessionOutbound[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = outbound;
+            members = next;
+            return true;
+        }
+
+        synchronized boolean remove(SessionOutbound outbound) {
+            SessionOutbound[] current = members;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] != outbound) continue;
+                if (current.length == 1) {
+                    members = EMPTY;
+                } else {
+                    SessionOutbound[] next = new SessionOutbound[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                    members = next;
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
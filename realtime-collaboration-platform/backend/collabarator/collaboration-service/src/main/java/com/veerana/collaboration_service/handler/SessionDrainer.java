@@ -0,0 +1,180 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Moves every session off this node before shutdown: refuses new sessions,
+ * tells each client when to reconnect (jittered, so they do not all hit the
+ * gateway and Redis at once), closes each socket at its own time, force-closes
+ * whatever is left at the deadline, and then clears presence in one batch.
+ *
+ * Sends and closes run on the drain's own daemon threads rather than the
+ * Spring executors, which stop taking tasks while the context closes; the
+ * calling thread just waits until the last session has gone or the deadline
+ * has passed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionDrainer {
+
+    private final PresenceService presenceService;
+
+    // Threads that deliver the RECONNECT hints and close sessions during the drain
+    @Value("${collab.drain.threads:4}")
+    private int drainThreads;
+
+    // No new sessions once set; presence of closed sessions is cleaned up in one batch at the end
+    private volatile boolean draining;
+    private volatile long startedAt;
+    private volatile Run activeRun;
+    private final Map<String, Set<String>> drainedMembers = new ConcurrentHashMap<>();
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * A session is gone. During a drain its member is kept for the batched
+     * presence cleanup instead of leaving right away.
+     *
+     * @return true if the drain took over the member's LEAVE
+     */
+    public boolean sessionClosed(String sessionId, String documentId, String email) {
+        Run run = activeRun;
+        if (run != null) run.closed(sessionId);
+        if (!draining || documentId == null || email == null) return false;
+        // Most of these users are back on another node before the batch runs
+        drainedMembers.computeIfAbsent(documentId, k -> ConcurrentHashMap.newKeySet()).add(email);
+        return true;
+    }
+
+    /**
+     * @param sessions  live sessionId → outbound map of this node
+     * @param reconnect queues the RECONNECT hint (delay in ms) for one session
+     * @param leave     announces that a member (documentId, email) left for good
+     * @param minDelayMs no client is told to reconnect sooner — long enough for the gateway to drop this node
+     */
+    public void drain(Map<String, SessionOutbound> sessions, BiConsumer<SessionOutbound, Long> reconnect,
+                      BiConsumer<String, String> leave, long minDelayMs, long jitterMs, long deadlineMs) {
+        if (draining) return;
+        startedAt = System.currentTimeMillis();
+        draining = true;
+        long deadline = startedAt + deadlineMs;
+
+        Map<String, SessionOutbound> drained = new HashMap<>(sessions);
+        Run run = new Run(drained.keySet(), drainThreads);
+        activeRun = run;
+        // Closed before sessionClosed could see the run
+        drained.keySet().forEach(id -> {
+            if (!sessions.containsKey(id)) run.closed(id);
+        });
+        log.info("Draining {} sessions (delay {} ms + jitter {} ms, deadline {} ms)",
+                drained.size(), minDelayMs, jitterMs, deadlineMs);
+
+        try {
+            for (SessionOutbound outbound : drained.values()) {
+                long delay = minDelayMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+                outbound.useExecutor(run.executor());
+                reconnect.accept(outbound, delay);
+                run.schedule(() -> outbound.closeWhenFlushed(CloseStatus.SERVICE_RESTARTED), delay);
+            }
+            if (!run.awaitClosed(deadline)) {
+                log.warn("Drain deadline reached — force-closing {} sessions", run.remaining());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sessions.values().forEach(o -> closeQuietly(o.getSession()));
+            run.shutdown();
+        }
+
+        cleanUpPresence(leave);
+        log.info("Drain finished in {} ms", System.currentTimeMillis() - startedAt);
+    }
+
+    private void cleanUpPresence(BiConsumer<String, String> leave) {
+        if (drainedMembers.isEmpty()) return;
+        try {
+            Map<String, Set<String>> gone = presenceService.leaveAll(drainedMembers, startedAt);
+            gone.forEach((documentId, emails) -> emails.forEach(email -> leave.accept(documentId, email)));
+            log.info("Drain presence cleanup: {} rooms, {} members left for good",
+                    drainedMembers.size(), gone.values().stream().mapToInt(Set::size).sum());
+        } catch (Exception e) {
+            log.error("Error cleaning up presence after drain", e);
+        }
+    }
+
+    private static void closeQuietly(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SERVICE_RESTARTED);
+        } catch (IOException e) {
+            log.debug("Error closing session {}", session.getId(), e);
+        }
+    }
+
+    // One drain: the sessions it waits for and the threads it sends and closes on
+    private static final class Run {
+
+        private final ScheduledExecutorService scheduler;
+        private final Set<String> remaining = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch allClosed;
+
+        Run(Collection<String> sessionIds, int threads) {
+            AtomicInteger count = new AtomicInteger();
+            this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+                Thread thread = new Thread(r, "collab-drain-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.remaining.addAll(sessionIds);
+            this.allClosed = new CountDownLatch(remaining.size());
+        }
+
+        Executor executor() {
+            return scheduler;
+        }
+
+        void schedule(Runnable task, long delayMs) {
+            scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        // Idempotent; ids the run does not wait for are ignored
+        void closed(String sessionId) {
+            if (remaining.remove(sessionId)) allClosed.countDown();
+        }
+
+        boolean awaitClosed(long deadline) throws InterruptedException {
+            return allClosed.await(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+
+        int remaining() {
+            return remaining.size();
+        }
+
+        void shutdown() {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.service.CollabMetrics;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded outbound queue for one WebSocket session.
+ *
+ * Callers only enqueue; a single drain task on the send executor writes
+ * frames in order. A slow client therefore backs up its own queue instead
+ * of stalling the Redis listener thread and every other room.
+ *
+ * A write that takes longer than the send time limit gets the session closed
+ * (see {@link #closeIfSendStuck}), so a client that stops reading cannot pin
+ * one of the send threads indefinitely.
+ */
+@Slf4j
+public class SessionOutbound {
+
+    public enum OverflowPolicy {
+        // Drop queued CURSOR frames (then the incoming CURSOR); close if only edits are queued
+        DROP_CURSOR,
+        // Keep only the newest pending CURSOR per user and the newest CURSORS batch; close if still full
+        COALESCE,
+        // Close the slow consumer as soon as its queue is full
+        CLOSE
+    }
+
+    // Frames written per drain turn before yielding the executor thread
+    private static final int DRAIN_BATCH = 64;
+
+    // Tomcat's own bound on a blocking write (20 s unless set per session)
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final WebSocketSession session;
+    private final WireFormat wire;
+    private volatile Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final CollabMetrics metrics;
+    private final boolean readOnly;
+    private final long sendTimeLimitMs;
+
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean held;
+    private boolean closed;
+    private CloseStatus closeWhenFlushed;
+
+    // Last pong (or inbound frame) from the client — drives presence heartbeats
+    private volatile long lastSeen = System.currentTimeMillis();
+
+    // Last cursor frames let through to a read-only session, and the newest ones held back since
+    private long lastCursorAt;
+    private final Map<String, Frame> deferredCursors = new LinkedHashMap<>();
+
+    // Start of the write in progress, 0 when idle
+    private volatile long sendingSince;
+
+    public SessionOutbound(WebSocketSession session, WireFormat wire, Executor executor, int capacity,
+                           OverflowPolicy policy, CollabMetrics metrics, boolean readOnly, long sendTimeLimitMs) {
+        this.session  = session;
+        this.wire     = wire;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy   = policy;
+        this.metrics  = metrics;
+        this.readOnly = readOnly;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        applyNativeSendTimeout();
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public void markAlive() {
+        lastSeen = System.currentTimeMillis();
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public WireFormat getWireFormat() {
+        return wire;
+    }
+
+    // True when the client negotiated the compact binary subprotocol
+    public boolean isBinary() {
+        return wire == WireFormat.BINARY;
+    }
+
+    // True for VIEWER sessions: inbound frames are dropped, cursors are throttled
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Viewer cursor throttle: at most one send of cursor frames per interval.
+     * A frame arriving inside the window is held back (newest per sender, CURSORS
+     * batches under a null key) and goes out with the next due frame or from
+     * {@link #flushDeferredCursors}, so the last move before a pause still arrives.
+     */
+    public void offerViewerCursor(WebSocketMessage<?> message, String type, String userEmail,
+                                  long now, long intervalMs) {
+        List<Frame> due;
+        synchronized (this) {
+            if (closed) return;
+            if (now - lastCursorAt < intervalMs) {
+                deferredCursors.remove(userEmail);
+                deferredCursors.put(userEmail, new Frame(message, type, userEmail));
+                return;
+            }
+            lastCursorAt = now;
+            deferredCursors.remove(userEmail); // superseded by this frame
+            due = takeDeferredCursors();
+        }
+        due.forEach(f -> enqueue(f.message(), f.type(), f.userEmail()));
+        enqueue(message, type, userEmail);
+    }
+
+    // Sends cursor frames held back by the viewer throttle once the window has passed
+    public void flushDeferredCursors(long now, long intervalMs) {
+        List<Frame> due;
+        synchronized (this) {
+            if (deferredCursors.isEmpty() || now - lastCursorAt < intervalMs) return;
+            lastCursorAt = now;
+            due = takeDeferredCursors();
+        }
+        due.forEach(f -> enqueue(f.message(), f.type(), f.userEmail()));
+    }
+
+    /**
+     * Queues a frame for delivery. Never blocks on the network.
+     *
+     * @param type      CollabMessage type of the frame (used by the overflow policy)
+     * @param userEmail sender of the frame (used to coalesce CURSOR frames)
+     */
+    public void enqueue(WebSocketMessage<?> message, String type, String userEmail) {
+        Frame frame = new Frame(message, type, userEmail);
+        boolean schedule;
+        boolean closeSlow = false;
+
+        synchronized (this) {
+            if (closed) return;
+
+            if (policy == OverflowPolicy.COALESCE && frame.isCursor()) {
+                removePendingCursor(frame);
+            }
+
+            if (queue.size() >= capacity && !makeRoom(frame)) {
+                if (!closed) {
+                    closed = true;
+                    queue.clear();
+                    log.warn("Closing slow session {} — outbound queue full ({} frames)",
+                            session.getId(), capacity);
+                    metrics.slowConsumerClosed();
+                    closeSlow = true;
+                }
+                schedule = false;
+            } else if (queue.size() >= capacity) {
+                metrics.frameDropped();
+                return; // incoming frame was dropped by the policy
+            } else {
+                queue.addLast(frame);
+                schedule = !draining && !held;
+                if (schedule) draining = true;
+            }
+        }
+
+        if (closeSlow) {
+            try {
+                executor.execute(this::closeSlowConsumer);
+            } catch (RejectedExecutionException e) {
+                // Send executor shut down — nothing else would close this session
+                closeSlowConsumer();
+            }
+        } else if (schedule) {
+            schedule();
+        }
+    }
+
+    /**
+     * Sends everything from now on through {@code next} — used by the shutdown
+     * drain, whose threads outlive the send executor. Restarts sending if an
+     * earlier hand-off to the old executor was rejected.
+     */
+    public void useExecutor(Executor next) {
+        boolean schedule;
+        synchronized (this) {
+            executor = next;
+            schedule = !draining && !held && !closed && !queue.isEmpty();
+            if (schedule) draining = true;
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    // Buffers frames without sending until resume() — used while a replay is loaded
+    public synchronized void hold() {
+        held = true;
+    }
+
+    /**
+     * Puts {@code replay} ahead of everything buffered while held, then starts sending.
+     * Replay frames bypass the capacity bound (the replay is already limited).
+     */
+    public void resume(List<? extends WebSocketMessage<?>> replay, String type) {
+        boolean schedule;
+        synchronized (this) {
+            if (closed) return;
+            for (int i = replay.size() - 1; i >= 0; i--) {
+                queue.addFirst(new Frame(replay.get(i), type, null));
+            }
+            held = false;
+            schedule = !draining && !queue.isEmpty();
+            if (schedule) draining = true;
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+        deferredCursors.clear();
+    }
+
+    /**
+     * Closes the socket with {@code status} once everything already queued has
+     * been written (used to deliver a last hint before closing).
+     */
+    public void closeWhenFlushed(CloseStatus status) {
+        synchronized (this) {
+            if (closed) return;
+            closeWhenFlushed = status;
+            if (draining || (held && !queue.isEmpty())) return; // the drain closes when done
+            closed = true;
+        }
+        closeQuietly(status);
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Closes the session if the write in progress has taken longer than the
+     * send time limit. Called periodically from outside the send executor.
+     *
+     * @return true if the session was closed
+     */
+    public boolean closeIfSendStuck(long now) {
+        long since = sendingSince;
+        if (since == 0 || now - since < sendTimeLimitMs) return false;
+        synchronized (this) {
+            if (closed) return false;
+            closed = true;
+            queue.clear();
+        }
+        log.warn("Closing session {} — send blocked for {} ms", session.getId(), now - since);
+        metrics.slowConsumerClosed();
+        // Closing the socket also fails the blocked write, which frees the send thread
+        closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+        return true;
+    }
+
+    // =========================
+    // OVERFLOW
+    // =========================
+
+    // Returns false when the policy decides the session must be closed
+    private boolean makeRoom(Frame incoming) {
+        switch (policy) {
+            case DROP_CURSOR -> {
+                if (removeOldestCursor()) return true;
+                return incoming.isCursor(); // drop the incoming cursor, keep the session
+            }
+            case COALESCE -> {
+                return coalesceCursors() || incoming.isCursor();
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private List<Frame> takeDeferredCursors() {
+        if (deferredCursors.isEmpty()) return List.of();
+        List<Frame> frames = new ArrayList<>(deferredCursors.values());
+        deferredCursors.clear();
+        return frames;
+    }
+
+    private boolean removeOldestCursor() {
+        Iterator<Frame> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().isCursor()) {
+                it.remove();
+                metrics.frameDropped();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A CURSOR replaces the same user's queued CURSOR; a CURSORS batch (no sender) replaces queued batches
+    private void removePendingCursor(Frame incoming) {
+        if (incoming.isBatch()) {
+            queue.removeIf(Frame::isBatch);
+        } else {
+            queue.removeIf(f -> f.isSingleCursor() && Objects.equals(f.userEmail(), incoming.userEmail()));
+        }
+    }
+
+    // Keeps only the newest queued CURSOR per user and the newest CURSORS batch; true if anything was removed
+    private boolean coalesceCursors() {
+        Set<String> seen = new HashSet<>();
+        boolean batchSeen = false;
+        boolean removed = false;
+        Iterator<Frame> it = queue.descendingIterator();
+        while (it.hasNext()) {
+            Frame f = it.next();
+            boolean stale;
+            if (f.isBatch()) {
+                stale = batchSeen;
+                batchSeen = true;
+            } else {
+                stale = f.isSingleCursor() && !seen.add(String.valueOf(f.userEmail()));
+            }
+            if (stale) {
+                it.remove();
+                metrics.frameDropped();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    // =========================
+    // DRAIN
+    // =========================
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            log.error("Send executor rejected drain for session {}", session.getId(), e);
+            synchronized (this) {
+                draining = false;
+            }
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Frame frame;
+            CloseStatus closeNow = null;
+            synchronized (this) {
+                frame = queue.pollFirst();
+                if (frame == null) {
+                    draining = false;
+                    if (closeWhenFlushed != null && !closed) {
+                        closed = true;
+                        closeNow = closeWhenFlushed;
+                    }
+                }
+            }
+            if (frame == null) {
+                if (closeNow != null) closeQuietly(closeNow);
+                return;
+            }
+            try {
+                if (session.isOpen()) {
+                    sendingSince = System.currentTimeMillis();
+                    session.sendMessage(frame.message());
+                }
+            } catch (IOException | IllegalStateException e) {
+                metrics.sendFailure();
+                log.error("Error sending to session {}", session.getId(), e);
+                // A failed or timed-out write leaves the stream unusable — stop instead of retrying per frame
+                abort();
+                return;
+            } finally {
+                sendingSince = 0;
+            }
+        }
+        // More pending — yield so other sessions get a turn on this thread
+        schedule();
+    }
+
+    private void abort() {
+        boolean close;
+        synchronized (this) {
+            draining = false;
+            close = !closed;
+            closed = true;
+            queue.clear();
+        }
+        if (close) closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    // Bounds each blocking write at the container level as well
+    private void applyNativeSendTimeout() {
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            Session standard = nativeSession.getNativeSession(Session.class);
+            if (standard != null) {
+                standard.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+            }
+        }
+    }
+
+    private void closeSlowConsumer() {
+        closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("Error closing session {}", session.getId(), e);
+        }
+    }
+
+    private record Frame(WebSocketMessage<?> message, String type, String userEmail) {
+        boolean isCursor() {
+            return isSingleCursor() || isBatch();
+        }
+
+        boolean isSingleCursor() {
+            return "CURSOR".equals(type);
+        }
+
+        // Coalesced CURSORS frame — queued without a sender
+        boolean isBatch() {
+            return "CURSORS".equals(type);
+        }
+    }
+}
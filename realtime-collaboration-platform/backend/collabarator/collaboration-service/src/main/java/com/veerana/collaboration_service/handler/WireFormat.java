@@ -0,0 +1,20 @@
+package com.veerana.collaboration_service.handler;
+
+/**
+ * Frame encoding of one session, fixed by the subprotocol accepted at handshake.
+ */
+public enum WireFormat {
+
+    // JSON text frames ("collab.v1.json" or no subprotocol)
+    JSON,
+    // JSON text frames; large frames as deflated JSON in binary frames
+    JSON_DEFLATE,
+    // Varint frames (BinaryFrameCodec); large frames deflated
+    BINARY;
+
+    public static WireFormat of(String acceptedProtocol) {
+        if (BinaryFrameCodec.BINARY_PROTOCOL.equals(acceptedProtocol)) return BINARY;
+        if (FrameCompressor.DEFLATE_JSON_PROTOCOL.equals(acceptedProtocol)) return JSON_DEFLATE;
+        return JSON;
+    }
+}
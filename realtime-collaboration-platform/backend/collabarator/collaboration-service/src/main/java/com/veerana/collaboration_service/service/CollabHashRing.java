@@ -0,0 +1,172 @@
+package com.veerana.collaboration_service.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This node's copy of the gateway's consistent-hash ring (same collab.ring.*
+ * settings, same hash, same health probe), used to find rooms the
+ * gateway now routes to another node after a node joined or left.
+ *
+ * Owner changes are only acted on once the ring has been stable for the settle
+ * time, so a probe that this node and the gateway briefly see differently does
+ * not bounce sessions back and forth.
+ */
+@Slf4j
+@Service
+public class CollabHashRing {
+
+    @Value("${collab.ring.nodes:}")
+    private String configuredNodes;
+
+    // This node's URL exactly as it appears in collab.ring.nodes
+    @Value("${collab.ring.self:}")
+    private String configuredSelf;
+
+    @Value("${collab.ring.virtual-nodes:128}")
+    private int virtualNodes;
+
+    @Value("${collab.ring.probe-interval-ms:5000}")
+    private long probeIntervalMs;
+
+    @Value("${collab.ring.health-path:/actuator/health}")
+    private String healthPath;
+
+    // Management port the nodes serve health on; 0 probes the node URL's own port
+    @Value("${collab.ring.health-port:0}")
+    private int healthPort;
+
+    @Value("${collab.ring.settle-ms:15000}")
+    private long settleMs;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    private List<URI> nodes = List.of();
+    private URI self;
+    private final Set<URI> healthy = ConcurrentHashMap.newKeySet();
+
+    // Immutable snapshot, swapped whenever membership changes
+    private volatile NavigableMap<Long, URI> ring = new TreeMap<>();
+    private volatile long changedAt;
+
+    @PostConstruct
+    void init() {
+        nodes = Arrays.stream(configuredNodes.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(URI::create)
+                .toList();
+        if (nodes.isEmpty()) return;
+
+        if (configuredSelf.isBlank() || !nodes.contains(URI.create(configuredSelf.trim()))) {
+            throw new IllegalStateException("collab.ring.self must be one of collab.ring.nodes");
+        }
+        self = URI.create(configuredSelf.trim());
+
+        // Start optimistic like the gateway; the first probe round removes nodes that are down
+        healthy.addAll(nodes);
+        rebuild();
+    }
+
+    public boolean isEnabled() {
+        return !nodes.isEmpty();
+    }
+
+    // True when the settled ring places the document on another node
+    public boolean ownedElsewhere(String documentId, long now) {
+        if (!isEnabled() || now - changedAt < settleMs) return false;
+        URI owner = owner(ring, documentId);
+        return owner != null && !owner.equals(self);
+    }
+
+    // Up only while the health endpoint answers 2xx, as the gateway sees it
+    @Scheduled(fixedRateString = "${collab.ring.probe-interval-ms:5000}")
+    public void probe() {
+        if (!isEnabled()) return;
+        Duration timeout = Duration.ofMillis(Math.max(500, probeIntervalMs / 2));
+        for (URI node : nodes) {
+            HttpRequest request = HttpRequest.newBuilder(healthUri(node, healthPort, healthPath))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) ->
+                            markHealthy(node, error == null && response.statusCode() / 100 == 2));
+        }
+    }
+
+    private void markHealthy(URI node, boolean up) {
+        boolean changed = up ? healthy.add(node) : healthy.remove(node);
+        if (changed) {
+            log.info("Collaboration node {} {} the ring", node, up ? "joined" : "left");
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        ring = build(nodes.stream().filter(healthy::contains).toList(), virtualNodes);
+        changedAt = System.currentTimeMillis();
+    }
+
+    // Same probe target as the gateway's CollabHashRing.healthUri
+    static URI healthUri(URI node, int healthPort, String healthPath) {
+        return UriComponentsBuilder.fromUri(node)
+                .port(healthPort > 0 ? healthPort : node.getPort())
+                .replacePath(healthPath)
+                .build()
+                .toUri();
+    }
+
+    // Must stay identical to the gateway's CollabHashRing.build/owner/hash
+    static NavigableMap<Long, URI> build(Collection<URI> members, int virtualNodes) {
+        NavigableMap<Long, URI> next = new TreeMap<>();
+        for (URI node : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                next.put(hash(node + "#" + i), node);
+            }
+        }
+        return next;
+    }
+
+    static URI owner(NavigableMap<Long, URI> ring, String documentId) {
+        if (ring.isEmpty()) return null;
+        Map.Entry<Long, URI> entry = ring.ceilingEntry(hash(documentId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
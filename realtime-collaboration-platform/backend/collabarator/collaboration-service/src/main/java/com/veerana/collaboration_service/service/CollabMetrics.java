@@ -0,0 +1,146 @@
+package com.veerana.collaboration_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the collaboration pipeline.
+ *
+ * Tags are limited to the message type (a fixed set, anything else is
+ * "OTHER") — never documentId or email — so cardinality stays bounded no
+ * matter how many rooms are open. Hot rooms show up in the fan-out and
+ * room-size distributions instead.
+ */
+@Component
+public class CollabMetrics {
+
+    private static final Set<String> KNOWN_TYPES = Set.of(
+            "JOIN", "LEAVE", "EDIT", "CURSOR", "CURSORS", "PRESENCE", "RESYNC", "PING"
+    );
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Counter> inbound  = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outbound = new ConcurrentHashMap<>();
+
+    private final Timer broadcastTimer;
+    private final Timer publishTimer;
+    private final DistributionSummary fanOut;
+    private final DistributionSummary roomSize;
+    private final Counter sendFailures;
+    private final Counter framesDropped;
+    private final Counter slowConsumersClosed;
+    private final Counter viewerFramesDropped;
+    private final Counter compressionIn;
+    private final Counter compressionOut;
+
+    public CollabMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        this.broadcastTimer = Timer.builder("collab.broadcast.latency")
+                .description("Time to fan one frame out to a room's outbound queues")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.publishTimer = Timer.builder("collab.redis.publish.latency")
+                .description("Time to publish one message (local delivery plus Redis)")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.fanOut = DistributionSummary.builder("collab.broadcast.fanout")
+                .description("Recipients per broadcast")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.roomSize = DistributionSummary.builder("collab.room.sessions")
+                .description("Sessions in the room after a join")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.sendFailures = Counter.builder("collab.send.failures")
+                .description("Frames that failed to write to a socket")
+                .register(registry);
+        this.framesDropped = Counter.builder("collab.send.dropped")
+                .description("Frames shed by the outbound overflow policy")
+                .register(registry);
+        this.slowConsumersClosed = Counter.builder("collab.send.slow.closed")
+                .description("Sessions closed because their outbound queue overflowed")
+                .register(registry);
+        this.viewerFramesDropped = Counter.builder("collab.viewer.inbound.dropped")
+                .description("Frames from read-only sessions dropped without parsing")
+                .register(registry);
+        this.compressionIn = Counter.builder("collab.compression.bytes.in")
+                .description("Bytes of frames before compression")
+                .baseUnit("bytes")
+                .register(registry);
+        this.compressionOut = Counter.builder("collab.compression.bytes.out")
+                .description("Bytes of frames after compression")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // Gauge over a live collection/map size (rooms, sessions, listeners)
+    public void gauge(String name, String description, Supplier<Number> size) {
+        Gauge.builder(name, size).description(description).register(registry);
+    }
+
+    public void messageIn(String type) {
+        inbound.computeIfAbsent(normalize(type), t -> Counter.builder("collab.messages.in")
+                .description("Frames received from clients")
+                .tag("type", t)
+                .register(registry)).increment();
+    }
+
+    public void messagesOut(String type, int recipients) {
+        outbound.computeIfAbsent(normalize(type), t -> Counter.builder("collab.messages.out")
+                .description("Frames queued to clients")
+                .tag("type", t)
+                .register(registry)).increment(recipients);
+    }
+
+    public Timer broadcastTimer() {
+        return broadcastTimer;
+    }
+
+    public Timer publishTimer() {
+        return publishTimer;
+    }
+
+    public void fanOut(int recipients) {
+        fanOut.record(recipients);
+    }
+
+    public void roomSize(int sessions) {
+        roomSize.record(sessions);
+    }
+
+    public void sendFailure() {
+        sendFailures.increment();
+    }
+
+    public void frameDropped() {
+        framesDropped.increment();
+    }
+
+    public void slowConsumerClosed() {
+        slowConsumersClosed.increment();
+    }
+
+    public void viewerFrameDropped() {
+        viewerFramesDropped.increment();
+    }
+
+    public void compressed(int before, int after) {
+        compressionIn.increment(before);
+        compressionOut.increment(after);
+    }
+
+    private static String normalize(String type) {
+        return type != null && KNOWN_TYPES.contains(type) ? type : "OTHER";
+    }
+}
@@ -0,0 +1,46 @@
+package com.veerana.collaboration_service.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps only the latest CURSOR position per user per document between
+ * flush ticks, so a burst of cursor moves becomes a single batched frame.
+ */
+@Service
+public class CursorCoalescer {
+
+    // documentId → (userEmail → latest cursor position)
+    // compute()/remove() keep offer and drain atomic per document
+    private final Map<String, Map<String, String>> pending = new ConcurrentHashMap<>();
+
+    public void offer(String documentId, String userEmail, String position) {
+        pending.compute(documentId, (k, cursors) -> {
+            if (cursors == null) cursors = new HashMap<>();
+            cursors.put(userEmail, position);
+            return cursors;
+        });
+    }
+
+    // Drops a pending position so it is not flushed after the user has left
+    public void forget(String documentId, String userEmail) {
+        pending.computeIfPresent(documentId, (k, cursors) -> {
+            cursors.remove(userEmail);
+            return cursors.isEmpty() ? null : cursors;
+        });
+    }
+
+    // Hands every document's pending cursors to the flusher and clears them
+    public void drain(BiConsumer<String, Map<String, String>> flusher) {
+        for (String documentId : pending.keySet()) {
+            Map<String, String> cursors = pending.remove(documentId);
+            if (cursors != null && !cursors.isEmpty()) {
+                flusher.accept(documentId, cursors);
+            }
+        }
+    }
+}
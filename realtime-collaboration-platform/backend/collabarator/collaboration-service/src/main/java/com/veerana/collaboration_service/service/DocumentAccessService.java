@@ -0,0 +1,102 @@
+package com.veerana.collaboration_service.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves, once per handshake, whether a session may edit or only watch.
+ *
+ * Only an explicit VIEWER permission makes a session read-only. Users without a
+ * permission row (e.g. team documents) and lookups that fail keep full access,
+ * as before roles were checked here. Answers are cached per document and user.
+ */
+@Slf4j
+@Service
+public class DocumentAccessService {
+
+    public enum Access { EDIT, VIEW }
+
+    @Value("${collab.access.enabled:true}")
+    private boolean enabled;
+
+    @Value("${collab.access.document-service-url:http://localhost:8083}")
+    private String documentServiceUrl;
+
+    @Value("${collab.access.internal-token:}")
+    private String internalToken;
+
+    @Value("${collab.access.cache-ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    // Connect and read timeout — the lookup holds a handshake thread, and a timeout falls back to EDIT
+    @Value("${collab.access.timeout-ms:2000}")
+    private int timeoutMs;
+
+    private RestClient documentClient;
+
+    // documentId + email → resolved access (short-lived cache)
+    private final Map<String, CachedAccess> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (enabled && internalToken.isBlank()) {
+            throw new IllegalStateException("collab.access.internal-token (INTERNAL_TOKEN) must be set");
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        documentClient = RestClient.builder()
+                .baseUrl(documentServiceUrl)
+                .requestFactory(requestFactory)
+                .defaultHeader("X-Internal-Token", internalToken)
+                .build();
+    }
+
+    public Access resolve(String documentId, String email) {
+        if (!enabled) return Access.EDIT;
+
+        String key = documentId + '\n' + email;
+        long now = System.currentTimeMillis();
+        CachedAccess cached = cache.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.access();
+        }
+
+        try {
+            AccessResponse response = documentClient.get()
+                    .uri(b -> b.path("/internal/documents/{id}/access")
+                            .queryParam("email", email)
+                            .build(documentId))
+                    .retrieve()
+                    .body(AccessResponse.class);
+
+            Access access = response != null && "VIEWER".equals(response.role()) ? Access.VIEW : Access.EDIT;
+            cache.put(key, new CachedAccess(access, now + cacheTtlMs));
+            return access;
+        } catch (Exception e) {
+            // Not cached — the next handshake asks again
+            log.warn("Could not resolve access of {} to document {}, allowing edits", email, documentId, e);
+            return Access.EDIT;
+        }
+    }
+
+    @Scheduled(fixedRateString = "${collab.access.cache-ttl-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(c -> c.expiresAt() <= now);
+    }
+
+    private record CachedAccess(Access access, long expiresAt) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record AccessResponse(String documentId, String userEmail, String role) {}
+}
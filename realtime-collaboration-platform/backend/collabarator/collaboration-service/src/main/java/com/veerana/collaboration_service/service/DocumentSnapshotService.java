@@ -0,0 +1,620 @@
+package com.veerana.collaboration_service.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.veerana.collaboration_service.dto.TextOperation;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Folds the committed op stream of each open room into an in-memory copy of
+ * the document and writes it back to document-service — once per debounce
+ * window for all dirty documents together, and when a room empties.
+ *
+ * A room split across nodes has a single writer: the node holding the lease
+ * {@code collab-snapshot:{documentId}:writer}. The writer folds every EDIT the
+ * room broadcasts, local or forwarded, in revision order and fills any hole
+ * from the OT revision log. With every write it records which OT revision the
+ * content reflects ({@code collab-snapshot:{documentId}:revision}), so the next
+ * writer knows where to continue. The other nodes keep no copy and retry the
+ * lease periodically, taking over once the writer leaves or dies.
+ *
+ * Each write names the document version the copy was loaded at or last wrote,
+ * and document-service rejects it if the document has moved on (e.g. a PUT
+ * outside the room); the writer then stops rather than overwrite that change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentSnapshotService {
+
+    // Takes the lease if free, or extends it if ARGV[1] already holds it
+    private static final DefaultRedisScript<Long> ACQUIRE = new DefaultRedisScript<>(
+            "local owner = redis.call('GET', KEYS[1]) " +
+            "if owner == false or owner == ARGV[1] then " +
+            "  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "  return 1 " +
+            "end " +
+            "return 0",
+            Long.class
+    );
+
+    // Gives the lease up only if ARGV[1] still holds it
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('DEL', KEYS[1]) " +
+            "end " +
+            "return 0",
+            Long.class
+    );
+
+    private final TaskExecutor collabSnapshotExecutor;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final OperationalTransformService otService;
+
+    @Value("${collab.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${collab.snapshot.document-service-url:http://localhost:8083}")
+    private String documentServiceUrl;
+
+    @Value("${collab.snapshot.internal-token:}")
+    private String internalToken;
+
+    // Quiet period after the last edit before a document is written
+    @Value("${collab.snapshot.debounce-ms:2000}")
+    private long debounceMs;
+
+    // Upper bound so a document under constant editing is still written
+    @Value("${collab.snapshot.max-delay-ms:10000}")
+    private long maxDelayMs;
+
+    // A writer that stops renewing for this long loses the room to another node
+    @Value("${collab.snapshot.lease-ms:15000}")
+    private long leaseMs;
+
+    // Connect and read timeout towards document-service, well below the lease
+    @Value("${collab.snapshot.timeout-ms:5000}")
+    private int timeoutMs;
+
+    // The revision record is only meaningful while the OT log it points into exists
+    @Value("${collab.ot.ttl-ms:86400000}")
+    private long recordTtlMs;
+
+    private RestClient documentClient;
+
+    // documentId → this node's state for the room
+    private final Map<String, LiveDocument> documents = new ConcurrentHashMap<>();
+
+    // documentId → final write of a room that closed on this node and is still in flight
+    private final Map<String, CompletableFuture<Void>> writeBacks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (enabled && internalToken.isBlank()) {
+            throw new IllegalStateException("collab.snapshot.internal-token (INTERNAL_TOKEN) must be set");
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        documentClient = RestClient.builder()
+                .baseUrl(documentServiceUrl)
+                .requestFactory(requestFactory)
+                .defaultHeader("X-Internal-Token", internalToken)
+                .build();
+    }
+
+    // Room opened on this node — try to become its writer once any earlier write-back has landed (idempotent)
+    public void open(String documentId) {
+        if (!enabled) return;
+        documents.computeIfAbsent(documentId, id -> {
+            LiveDocument doc = new LiveDocument();
+            CompletableFuture<Void> writeBack = writeBacks.get(id);
+            if (writeBack == null) {
+                collabSnapshotExecutor.execute(() -> claim(id, doc));
+            } else {
+                // Loading before it lands would read the content from before the room last closed
+                writeBack.whenCompleteAsync((ignored, error) -> claim(id, doc), collabSnapshotExecutor);
+            }
+            return doc;
+        });
+    }
+
+    // Whether EDITs of this room are folded here — only the writer parses them
+    public boolean accepts(String documentId) {
+        LiveDocument doc = documents.get(documentId);
+        if (doc == null) return false;
+        synchronized (doc) {
+            return doc.role == Role.LOADING || doc.role == Role.WRITER;
+        }
+    }
+
+    // One committed revision of the room, as broadcast; arrival order does not matter
+    public void apply(String documentId, long revision, List<TextOperation> ops) {
+        LiveDocument doc = documents.get(documentId);
+        if (doc == null || ops == null) return;
+
+        synchronized (doc) {
+            if (doc.role == Role.LOADING) {
+                doc.pending.put(revision, ops);     // base content still loading
+            } else if (doc.role == Role.WRITER && revision > doc.revision) {
+                doc.pending.put(revision, ops);
+                foldPending(doc);
+            }
+        }
+    }
+
+    // Last session left — catch up, write immediately if anything changed, then hand the lease back
+    public void close(String documentId) {
+        LiveDocument doc = documents.remove(documentId);
+        if (doc == null) return;
+
+        synchronized (doc) {
+            doc.closed = true;
+            if (doc.role == Role.PASSIVE) return;   // a claim still in flight releases on its own
+        }
+        CompletableFuture<Void> writeBack = CompletableFuture.runAsync(() -> {
+            // Waits for a flush that is still writing this room, so this write expects the version it produced
+            doc.writing.acquireUninterruptibly();
+            try {
+                catchUp(documentId, doc);
+                Taken snapshot = takeSnapshot(documentId, doc, Long.MAX_VALUE);
+                if (snapshot != null) {
+                    write(Map.of(documentId, snapshot));
+                }
+            } finally {
+                doc.writing.release();
+                release(documentId, doc);
+            }
+        }, collabSnapshotExecutor);
+        writeBacks.put(documentId, writeBack);
+        writeBack.whenComplete((ignored, error) -> writeBacks.remove(documentId, writeBack));
+    }
+
+    // Lease upkeep for every room, then one batched write for every document that is due.
+    // The write runs on the snapshot executor: this scheduler also drives the cursor flush and heartbeats
+    @Scheduled(fixedRateString = "${collab.snapshot.flush-ms:1000}")
+    public void flush() {
+        if (!enabled || documents.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        Map<String, Taken> batch = new LinkedHashMap<>();
+
+        documents.forEach((documentId, doc) -> {
+            try {
+                if (!holdLease(documentId, doc, now)) return;
+                if (hasGap(doc)) catchUp(documentId, doc);
+                // Held until the batch is written, unless there is nothing to write;
+                // a room whose previous write is still in flight waits for the next flush
+                if (!doc.writing.tryAcquire()) return;
+                Taken snapshot = null;
+                try {
+                    snapshot = takeSnapshot(documentId, doc, now);
+                } finally {
+                    if (snapshot == null) doc.writing.release();
+                }
+                if (snapshot != null) batch.put(documentId, snapshot);
+            } catch (Exception e) {
+                log.error("Error maintaining snapshot of document {}", documentId, e);
+            }
+        });
+
+        if (batch.isEmpty()) return;
+        Runnable writeBatch = () -> {
+            try {
+                write(batch);
+            } finally {
+                batch.values().forEach(taken -> taken.doc().writing.release());
+            }
+        };
+        try {
+            collabSnapshotExecutor.execute(writeBatch);
+        } catch (TaskRejectedException e) {
+            // Executor already shut down — write here rather than drop the batch
+            writeBatch.run();
+        }
+    }
+
+    // =========================
+    // WRITER LEASE
+    // =========================
+    private void claim(String documentId, LiveDocument doc) {
+        synchronized (doc) {
+            if (doc.role != Role.PASSIVE || doc.claiming || doc.closed) return;
+            doc.claiming = true;
+        }
+        boolean acquired = false;
+        try {
+            acquired = acquire(documentId, doc);
+        } catch (Exception e) {
+            log.warn("Could not claim snapshot lease of document {}", documentId, e);
+        }
+
+        long now = System.currentTimeMillis();
+        boolean closed;
+        synchronized (doc) {
+            doc.claiming = false;
+            if (!acquired) {
+                doc.retryAt = now + renewIntervalMs();
+                return;
+            }
+            closed = doc.closed;
+            if (!closed) {
+                doc.role = Role.LOADING;
+                doc.leaseRenewedAt = now;
+            }
+        }
+        if (closed) {
+            release(documentId, doc);
+            return;
+        }
+        load(documentId, doc);
+    }
+
+    // Renews the lease of a writer, or retries the claim of a passive room; true if this node writes it
+    private boolean holdLease(String documentId, LiveDocument doc, long now) {
+        Role role;
+        synchronized (doc) {
+            role = doc.role;
+            if (role == Role.PASSIVE) {
+                if (!doc.claiming && now >= doc.retryAt) {
+                    doc.retryAt = now + renewIntervalMs();
+                    collabSnapshotExecutor.execute(() -> claim(documentId, doc));
+                }
+                return false;
+            }
+            if (now - doc.leaseRenewedAt < renewIntervalMs()) {
+                return role == Role.WRITER;
+            }
+        }
+
+        if (!acquire(documentId, doc)) {
+            log.warn("Lost snapshot lease of document {} — another node writes it now", documentId);
+            synchronized (doc) {
+                demote(doc, now);
+            }
+            return false;
+        }
+        synchronized (doc) {
+            doc.leaseRenewedAt = now;
+            return doc.role == Role.WRITER;
+        }
+    }
+
+    private boolean acquire(String documentId, LiveDocument doc) {
+        Long result = stringRedisTemplate.execute(
+                ACQUIRE, List.of(leaseKey(documentId)), doc.token, String.valueOf(leaseMs));
+        return result != null && result == 1;
+    }
+
+    private void release(String documentId, LiveDocument doc) {
+        try {
+            stringRedisTemplate.execute(RELEASE, List.of(leaseKey(documentId)), doc.token);
+        } catch (Exception e) {
+            // Expires on its own after the lease time
+            log.warn("Could not release snapshot lease of document {}", documentId, e);
+        }
+    }
+
+    private void demote(LiveDocument doc, long now) {
+        doc.role = Role.PASSIVE;
+        doc.content = null;
+        doc.pending.clear();
+        doc.dirty = false;
+        doc.retryAt = now + renewIntervalMs();
+    }
+
+    private long renewIntervalMs() {
+        return leaseMs / 3;
+    }
+
+    // =========================
+    // LOAD / CATCH UP
+    // =========================
+
+    // Base content plus the OT revision it reflects, then everything committed since
+    private void load(String documentId, LiveDocument doc) {
+        String content;
+        long version;
+        long base;
+        List<List<TextOperation>> missed;
+        try {
+            long head = otService.headRevision(documentId);
+            DocumentContent loaded = documentClient.get()
+                    .uri("/internal/documents/{id}", documentId)
+                    .retrieve()
+                    .body(DocumentContent.class);
+            if (loaded == null || loaded.version() == null) {
+                throw new IllegalStateException("No content or version for document " + documentId);
+            }
+            content = loaded.content() != null ? loaded.content() : "";
+            version = loaded.version();
+            base = baseRevision(documentId, content, head);
+            missed = otService.committedSince(documentId, base);
+        } catch (Exception e) {
+            // Give the room back; this or another node tries again after the retry interval
+            log.error("Could not load document {} for snapshots", documentId, e);
+            synchronized (doc) {
+                if (doc.role == Role.LOADING) demote(doc, System.currentTimeMillis());
+            }
+            release(documentId, doc);
+            return;
+        }
+
+        synchronized (doc) {
+            if (doc.role != Role.LOADING || doc.closed) return;   // lease lost or room closed meanwhile
+            if (missed == null) {
+                fail(documentId, doc, base);
+                return;
+            }
+            doc.content = new StringBuilder(content);
+            doc.version = version;
+            doc.revision = base;
+            for (int i = 0; i < missed.size(); i++) {
+                doc.pending.putIfAbsent(base + 1 + i, missed.get(i));
+            }
+            doc.role = Role.WRITER;
+            foldPending(doc);
+        }
+    }
+
+    /**
+     * OT revision the stored content corresponds to: the one recorded with the
+     * last write whose content still matches, otherwise (first writer of the
+     * document, or content replaced outside the room) the current head.
+     */
+    private long baseRevision(String documentId, String content, long head) {
+        Map<Object, Object> record = stringRedisTemplate.opsForHash().entries(recordKey(documentId));
+        String hash = sha256(content);
+
+        long revision;
+        if (hash.equals(record.get("hash"))) {
+            revision = Long.parseLong((String) record.get("rev"));
+        } else if (hash.equals(record.get("pendingHash"))) {
+            // The previous writer's last write landed but was never confirmed
+            revision = Long.parseLong((String) record.get("pendingRev"));
+        } else {
+            if (!record.isEmpty()) {
+                log.warn("Document {} changed outside the room — folding from revision {}", documentId, head);
+            }
+            return head;
+        }
+        if (revision > head) {
+            // Revision state expired and restarted since the record was written
+            log.warn("Document {} recorded at revision {} beyond head {} — folding from head", documentId, revision, head);
+            return head;
+        }
+        return revision;
+    }
+
+    private boolean hasGap(LiveDocument doc) {
+        synchronized (doc) {
+            return doc.role == Role.WRITER && !doc.pending.isEmpty();
+        }
+    }
+
+    // Fills holes in the broadcast stream (missed or not yet delivered revisions) from the OT log
+    private void catchUp(String documentId, LiveDocument doc) {
+        long from;
+        synchronized (doc) {
+            if (doc.role != Role.WRITER) return;
+            from = doc.revision;
+        }
+        List<List<TextOperation>> missed = otService.committedSince(documentId, from);
+        synchronized (doc) {
+            if (doc.role != Role.WRITER) return;
+            if (missed == null) {
+                fail(documentId, doc, from);
+                return;
+            }
+            for (int i = 0; i < missed.size(); i++) {
+                if (from + 1 + i > doc.revision) doc.pending.putIfAbsent(from + 1 + i, missed.get(i));
+            }
+            foldPending(doc);
+        }
+    }
+
+    // The fold can no longer be made exact — keep the lease so no node writes a wrong copy,
+    // and leave persistence of this room to the clients
+    private void fail(String documentId, LiveDocument doc, long revision) {
+        log.error("Revision log of document {} no longer reaches revision {} — snapshots stopped", documentId, revision);
+        abandon(doc);
+    }
+
+    private void abandon(LiveDocument doc) {
+        doc.role = Role.FAILED;
+        doc.content = null;
+        doc.pending.clear();
+        doc.dirty = false;
+    }
+
+    // Folds every buffered revision that directly follows the copy
+    private void foldPending(LiveDocument doc) {
+        doc.pending.headMap(doc.revision, true).clear();
+        boolean changed = false;
+        List<TextOperation> next;
+        while ((next = doc.pending.remove(doc.revision + 1)) != null) {
+            fold(doc.content, next);
+            doc.revision++;
+            changed = true;
+        }
+        if (changed) {
+            long now = System.currentTimeMillis();
+            if (!doc.dirty) doc.firstDirtyAt = now;
+            doc.dirty = true;
+            doc.lastChangeAt = now;
+        }
+    }
+
+    // =========================
+    // WRITE
+    // =========================
+
+    // Returns the content to write and clears the dirty flag, or null if not due
+    private Taken takeSnapshot(String documentId, LiveDocument doc, long now) {
+        synchronized (doc) {
+            if (doc.role != Role.WRITER || !doc.dirty) return null;
+            boolean due = now - doc.lastChangeAt >= debounceMs
+                    || now - doc.firstDirtyAt >= maxDelayMs;
+            if (!due) return null;
+            doc.dirty = false;
+            String content = doc.content.toString();
+            return new Taken(doc, doc.revision, sha256(content), new SnapshotRequest(documentId, content, doc.version));
+        }
+    }
+
+    private void write(Map<String, Taken> batch) {
+        try {
+            // Recorded before the write so a writer that dies mid-request can still be continued from
+            record(batch, "pendingRev", "pendingHash");
+            List<SnapshotResult> results = documentClient.put()
+                    .uri("/internal/documents/snapshots")
+                    .body(batch.values().stream().map(Taken::request).toList())
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<List<SnapshotResult>>() {});
+
+            Map<String, Taken> written = new LinkedHashMap<>();
+            for (SnapshotResult result : results != null ? results : List.<SnapshotResult>of()) {
+                Taken taken = batch.get(result.documentId());
+                if (taken == null) continue;
+                if (result.written()) {
+                    synchronized (taken.doc()) {
+                        taken.doc().version = result.version();
+                    }
+                    written.put(result.documentId(), taken);
+                } else {
+                    rejected(result, taken.doc());
+                }
+            }
+            if (!written.isEmpty()) record(written, "rev", "hash");
+            log.debug("Wrote {} of {} document snapshots", written.size(), batch.size());
+        } catch (Exception e) {
+            log.error("Error writing {} document snapshots", batch.size(), e);
+            // Retry on the next flush — still-open rooms keep their state
+            long now = System.currentTimeMillis();
+            batch.values().forEach(taken -> {
+                LiveDocument doc = taken.doc();
+                synchronized (doc) {
+                    if (!doc.dirty) doc.firstDirtyAt = now;
+                    doc.dirty = true;
+                }
+            });
+        }
+    }
+
+    // The document moved past the copy's version outside the room (or was deleted) — stop instead of overwriting it
+    private void rejected(SnapshotResult result, LiveDocument doc) {
+        log.warn("Snapshot of document {} rejected: expected version {}, now {} — snapshots stopped",
+                result.documentId(), doc.version, result.version() != null ? result.version() : "deleted");
+        synchronized (doc) {
+            abandon(doc);
+        }
+    }
+
+    private void record(Map<String, Taken> batch, String revisionField, String hashField) {
+        byte[] revisionName = revisionField.getBytes(StandardCharsets.UTF_8);
+        byte[] hashName = hashField.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            batch.forEach((documentId, taken) -> {
+                byte[] key = recordKey(documentId).getBytes(StandardCharsets.UTF_8);
+                connection.hashCommands().hMSet(key, Map.of(
+                        revisionName, String.valueOf(taken.revision()).getBytes(StandardCharsets.UTF_8),
+                        hashName, taken.hash().getBytes(StandardCharsets.UTF_8)));
+                connection.keyCommands().pExpire(key, recordTtlMs);
+            });
+            return null;
+        });
+    }
+
+    // =========================
+    // HELPERS
+    // =========================
+    private static String leaseKey(String documentId) {
+        return "collab-snapshot:{" + documentId + "}:writer";
+    }
+
+    private static String recordKey(String documentId) {
+        return "collab-snapshot:{" + documentId + "}:revision";
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void fold(StringBuilder content, List<TextOperation> ops) {
+        for (TextOperation op : ops) {
+            int pos = Math.min(op.getPosition(), content.length());
+            if (op.isInsert()) {
+                content.insert(pos, op.getText());
+            } else {
+                content.delete(pos, Math.min(pos + op.getLength(), content.length()));
+            }
+        }
+    }
+
+    private enum Role {
+        PASSIVE,    // another node (or nobody yet) writes this room
+        LOADING,    // lease held, base content on its way
+        WRITER,     // lease held, copy current up to `revision`
+        FAILED      // lease held, copy abandoned
+    }
+
+    private static class LiveDocument {
+        private final String token = UUID.randomUUID().toString();  // lease value of this copy
+        private Role role = Role.PASSIVE;
+        private boolean claiming;
+        private boolean closed;
+        private long retryAt;
+        private long leaseRenewedAt;
+        private StringBuilder content;          // writer only
+        private long version;                   // document-service version `content` was loaded at or last wrote
+        private long revision;                  // OT revision `content` reflects
+        // Held from taking a snapshot until its write returned, so writes of one room never overlap.
+        // A permit rather than a lock: the flush takes it and the snapshot executor gives it back
+        private final Semaphore writing = new Semaphore(1);
+        // Revisions received ahead of the copy (out of order, or while loading)
+        private final TreeMap<Long, List<TextOperation>> pending = new TreeMap<>();
+        private boolean dirty;
+        private long firstDirtyAt;
+        private long lastChangeAt;
+    }
+
+    private record Taken(LiveDocument doc, long revision, String hash, SnapshotRequest request) {}
+
+    record SnapshotRequest(String documentId, String content, long expectedVersion) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SnapshotResult(String documentId, boolean written, Long version) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record DocumentContent(String id, String content, Long version) {}
+}
@@ -0,0 +1,101 @@
+package com.veerana.collaboration_service.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Capped Redis Stream of each document's EDIT frames ({@code collab-log:{documentId}}),
+ * so a reconnecting client can catch up on the ops it missed instead of
+ * reloading the whole document.
+ */
+@Service
+@RequiredArgsConstructor
+public class OpLogService {
+
+    private static final byte[] FIELD = "m".getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${collab.oplog.max-len:1000}")
+    private long maxLen;
+
+    @Value("${collab.oplog.replay-limit:500}")
+    private int replayLimit;
+
+    // Idle logs expire; a client resuming after that gets a RESYNC
+    @Value("${collab.oplog.ttl-ms:86400000}")
+    private long ttlMs;
+
+    private byte[] logKey(String documentId) {
+        return ("collab-log:" + documentId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // XADD ... MAXLEN ~ maxLen, then push the expiry out; returns the stream id assigned to the frame
+    public String append(String documentId, byte[] json) {
+        byte[] key = logKey(documentId);
+        RecordId id = stringRedisTemplate.execute((RedisCallback<RecordId>) connection -> {
+            RecordId added = connection.streamCommands().xAdd(
+                    StreamRecords.newRecord()
+                            .in(key)
+                            .ofMap(Map.of(FIELD, json)),
+                    XAddOptions.maxlen(maxLen).approximateTrimming(true)
+            );
+            connection.keyCommands().pExpire(key, ttlMs);
+            return added;
+        });
+        return id != null ? id.getValue() : null;
+    }
+
+    /**
+     * Frames appended after {@code sinceId}. Complete only when the log still
+     * holds {@code sinceId} itself, which proves nothing after it was trimmed.
+     * Not complete when it was trimmed or the log expired, or there are more
+     * than the replay limit — the client should then reload the document instead.
+     * A malformed {@code sinceId} fails in Redis and surfaces as an exception.
+     */
+    public Replay replaySince(String documentId, String sinceId) {
+        byte[] key = logKey(documentId);
+
+        List<ByteRecord> records = stringRedisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xRange(
+                        key,
+                        Range.rightUnbounded(Range.Bound.inclusive(sinceId)),
+                        Limit.limit().count(replayLimit + 2)
+                ));
+        // Nothing at all: the stream was deleted or expired, so coverage cannot be shown
+        if (records == null || records.isEmpty()) {
+            return new Replay(false, List.of());
+        }
+
+        // The first entry must be sinceId itself, otherwise it was trimmed away
+        boolean sawSince = sinceId.equals(records.get(0).getId().getValue());
+        if (!sawSince || records.size() > replayLimit + 1) {
+            return new Replay(false, List.of());
+        }
+
+        List<Entry> entries = new ArrayList<>(records.size() - 1);
+        for (ByteRecord record : records.subList(1, records.size())) {
+            // byte[] keys have identity equality — the record holds a single field, take it
+            entries.add(new Entry(record.getId().getValue(), record.getValue().values().iterator().next()));
+        }
+        return new Replay(true, entries);
+    }
+
+    public record Entry(String id, byte[] json) {}
+
+    public record Replay(boolean complete, List<Entry> entries) {}
+}
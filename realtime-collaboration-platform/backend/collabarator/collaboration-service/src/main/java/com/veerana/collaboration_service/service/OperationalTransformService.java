@@ -0,0 +1,377 @@
+package com.veerana.collaboration_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.TextOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-authoritative operational transform for EDIT messages.
+ *
+ * Revisions are assigned by Redis, not by the node: {@code collab-ot:{documentId}:rev}
+ * is the document's revision counter and {@code collab-ot:{documentId}:log} the
+ * bounded window of ops committed at each revision. Every node hosting the room
+ * commits through the same compare-and-set script, so a room split across
+ * nodes still has one revision sequence.
+ *
+ * An incoming edit names the revision it was based on; it is transformed
+ * against everything committed since and offered to Redis as the next
+ * revision. If another node committed first, the script returns those ops
+ * instead, the edit is transformed against them too and offered again.
+ * Each node keeps a copy of the window, so in the common case a commit is a
+ * single round trip. Only the transformed ops are broadcast.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OperationalTransformService {
+
+    private static final TypeReference<List<TextOperation>> OPS = new TypeReference<>() {};
+
+    // Commits that lose the race this many times in a row get a RESYNC
+    private static final int MAX_COMMIT_ATTEMPTS = 8;
+
+    // Current revision, then the ops of every revision after ARGV[1] still in the log
+    // (all of the log when ARGV[1] was already trimmed away)
+    private static final String READ_AFTER =
+            "local oldest = rev - redis.call('LLEN', KEYS[2]) " +
+            "local from = math.max(tonumber(ARGV[1]), oldest) " +
+            "local result = {rev} " +
+            "if from < rev then " +
+            "  for _, ops in ipairs(redis.call('LRANGE', KEYS[2], from - oldest, -1)) do " +
+            "    result[#result + 1] = ops " +
+            "  end " +
+            "end ";
+
+    // Ops committed after ARGV[1]: {rev, ops...}
+    private static final DefaultRedisScript<List> SYNC = new DefaultRedisScript<>(
+            "local rev = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            READ_AFTER +
+            "return result",
+            List.class
+    );
+
+    // Commits ARGV[2] as the next revision if the current one is still ARGV[1]: {1, rev}.
+    // Otherwise returns what was committed meanwhile: {0, rev, ops...}
+    private static final DefaultRedisScript<List> COMMIT = new DefaultRedisScript<>(
+            "local rev = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if rev == tonumber(ARGV[1]) then " +
+            "  rev = redis.call('INCR', KEYS[1]) " +
+            "  redis.call('RPUSH', KEYS[2], ARGV[2]) " +
+            "  redis.call('LTRIM', KEYS[2], -tonumber(ARGV[3]), -1) " +
+            "  redis.call('PEXPIRE', KEYS[1], ARGV[4]) " +
+            "  redis.call('PEXPIRE', KEYS[2], ARGV[4]) " +
+            "  return {1, rev} " +
+            "end " +
+            READ_AFTER +
+            "table.insert(result, 1, 0) " +
+            "return result",
+            List.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${collab.ot.history-size:500}")
+    private int historySize;
+
+    // Idle documents' revision state expires; clients resuming after that get a RESYNC
+    @Value("${collab.ot.ttl-ms:86400000}")
+    private long ttlMs;
+
+    // documentId → this node's copy of the committed window
+    private final Map<String, DocumentState> documents = new ConcurrentHashMap<>();
+
+    /**
+     * Transforms {@code ops} (based on {@code baseRevision}) against every op
+     * committed since, on any node, and commits the result.
+     *
+     * @return the committed edit, or null if the base revision is unknown
+     *         (too old or ahead of the server) and the client must resync
+     */
+    public CommittedEdit apply(String documentId, long baseRevision, List<TextOperation> ops) {
+        DocumentState state = documents.computeIfAbsent(documentId, k -> new DocumentState());
+
+        synchronized (state) {
+            if (!state.synced || baseRevision > state.revision) {
+                sync(documentId, state);
+            }
+
+            List<TextOperation> transformed = normalize(ops);
+            long base = baseRevision;
+
+            for (int attempt = 0; attempt < MAX_COMMIT_ATTEMPTS; attempt++) {
+                long oldest = state.revision - state.history.size();
+                if (base < oldest || base > state.revision) {
+                    log.warn("Rejected edit for document {} — base revision {} outside [{}, {}]",
+                            documentId, base, oldest, state.revision);
+                    return null;
+                }
+
+                // Skip the committed entries the client has already seen
+                Iterator<List<TextOperation>> it = state.history.iterator();
+                for (long r = oldest; r < base; r++) {
+                    it.next();
+                }
+                while (it.hasNext()) {
+                    transformed = transform(transformed, it.next(), false).left();
+                }
+                base = state.revision;
+
+                List<Object> result = stringRedisTemplate.execute(
+                        COMMIT,
+                        keys(documentId),
+                        String.valueOf(state.revision),
+                        writeOps(transformed),
+                        String.valueOf(historySize),
+                        String.valueOf(ttlMs)
+                );
+                if (toLong(result.get(0)) == 1) {
+                    state.append(transformed, historySize);
+                    return new CommittedEdit(state.revision, transformed);
+                }
+                // Another node committed first — take its ops and rebase onto them
+                absorb(documentId, state, result.subList(1, result.size()));
+            }
+
+            log.warn("Gave up committing edit for document {} after {} attempts", documentId, MAX_COMMIT_ATTEMPTS);
+            return null;
+        }
+    }
+
+    // Revision as assigned by Redis, including edits committed on other nodes
+    public long currentRevision(String documentId) {
+        DocumentState state = documents.computeIfAbsent(documentId, k -> new DocumentState());
+        synchronized (state) {
+            sync(documentId, state);
+            return state.revision;
+        }
+    }
+
+    // Revision as assigned by Redis, without keeping any state for the document on this node
+    public long headRevision(String documentId) {
+        String revision = stringRedisTemplate.opsForValue().get(keys(documentId).get(0));
+        return revision != null ? Long.parseLong(revision) : 0;
+    }
+
+    /**
+     * Ops committed after {@code revision}, one entry per revision in order,
+     * or null if the log no longer reaches back that far.
+     */
+    public List<List<TextOperation>> committedSince(String documentId, long revision) {
+        List<Object> reply = stringRedisTemplate.execute(SYNC, keys(documentId), String.valueOf(revision));
+        long head = toLong(reply.get(0));
+        List<Object> ops = reply.subList(1, reply.size());
+        if (head < revision || head - ops.size() != revision) {
+            return null;
+        }
+        List<List<TextOperation>> result = new ArrayList<>(ops.size());
+        for (Object committed : ops) {
+            result.add(readOps((String) committed));
+        }
+        return result;
+    }
+
+    // Called when the last session leaves the room; the revision state stays in Redis
+    public void release(String documentId) {
+        documents.remove(documentId);
+    }
+
+    // =========================
+    // REDIS
+    // =========================
+    private static List<String> keys(String documentId) {
+        // Hash tag keeps both keys in one slot for the scripts
+        String prefix = "collab-ot:{" + documentId + "}:";
+        return List.of(prefix + "rev", prefix + "log");
+    }
+
+    private void sync(String documentId, DocumentState state) {
+        List<Object> result = stringRedisTemplate.execute(
+                SYNC, keys(documentId), String.valueOf(state.revision));
+        absorb(documentId, state, result);
+        state.synced = true;
+    }
+
+    // Applies a {rev, ops...} reply; the ops are those of the revisions right before rev
+    private void absorb(String documentId, DocumentState state, List<Object> reply) {
+        long revision = toLong(reply.get(0));
+        List<Object> ops = reply.subList(1, reply.size());
+        long first = revision - ops.size();
+
+        if (first != state.revision) {
+            // Gap (trimmed past what this node has) or Redis state reset — restart from Redis' window
+            log.info("Revision window for document {} reset from {} to {}", documentId, state.revision, first);
+            state.history.clear();
+            state.revision = first;
+        }
+        for (Object committed : ops) {
+            state.append(readOps((String) committed), historySize);
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : Long.parseLong(value.toString());
+    }
+
+    private String writeOps(List<TextOperation> ops) {
+        try {
+            return objectMapper.writeValueAsString(ops);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize ops", e);
+        }
+    }
+
+    private List<TextOperation> readOps(String json) {
+        try {
+            return objectMapper.readValue(json, OPS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt ops in revision log", e);
+        }
+    }
+
+    // =========================
+    // TRANSFORM
+    // =========================
+
+    /**
+     * Transforms two op sequences that were both based on the same state.
+     * left() is {@code a} rebased onto {@code b}, right() is {@code b}
+     * rebased onto {@code a}. {@code aWins} breaks ties between inserts
+     * at the same position.
+     */
+    static Pair transform(List<TextOperation> a, List<TextOperation> b, boolean aWins) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return new Pair(a, b);
+        }
+        if (a.size() == 1 && b.size() == 1) {
+            return new Pair(
+                    transformOne(a.get(0), b.get(0), aWins),
+                    transformOne(b.get(0), a.get(0), !aWins)
+            );
+        }
+        if (a.size() > 1) {
+            Pair head = transform(a.subList(0, 1), b, aWins);
+            Pair tail = transform(a.subList(1, a.size()), head.right(), aWins);
+            return new Pair(concat(head.left(), tail.left()), tail.right());
+        }
+        Pair head = transform(a, b.subList(0, 1), aWins);
+        Pair tail = transform(head.left(), b.subList(1, b.size()), aWins);
+        return new Pair(tail.left(), concat(head.right(), tail.right()));
+    }
+
+    // Rebases a single op x onto y (both based on the same state)
+    static List<TextOperation> transformOne(TextOperation x, TextOperation y, boolean xWins) {
+        if (x.isInsert()) {
+            int pos = x.getPosition();
+            if (y.isInsert()) {
+                if (y.getPosition() < pos || (y.getPosition() == pos && !xWins)) {
+                    pos += y.getText().length();
+                }
+            } else {
+                int yEnd = y.getPosition() + y.getLength();
+                if (pos >= yEnd) {
+                    pos -= y.getLength();
+                } else if (pos > y.getPosition()) {
+                    pos = y.getPosition();
+                }
+            }
+            return List.of(TextOperation.insert(pos, x.getText()));
+        }
+
+        int start = x.getPosition();
+        int end   = start + x.getLength();
+
+        if (y.isInsert()) {
+            int at  = y.getPosition();
+            int len = y.getText().length();
+            if (at >= end) {
+                return List.of(x);
+            }
+            if (at <= start) {
+                return List.of(TextOperation.delete(start + len, x.getLength()));
+            }
+            // Insert landed inside the deleted range — keep it, delete around it
+            return List.of(
+                    TextOperation.delete(start, at - start),
+                    TextOperation.delete(start + len, end - at)
+            );
+        }
+
+        int yStart = y.getPosition();
+        int yEnd   = yStart + y.getLength();
+        if (end <= yStart) {
+            return List.of(x);
+        }
+        if (start >= yEnd) {
+            return List.of(TextOperation.delete(start - y.getLength(), x.getLength()));
+        }
+        // Overlapping deletes — only remove what y has not already removed
+        int overlap   = Math.min(end, yEnd) - Math.max(start, yStart);
+        int remaining = x.getLength() - overlap;
+        if (remaining == 0) {
+            return List.of();
+        }
+        return List.of(TextOperation.delete(Math.min(start, yStart), remaining));
+    }
+
+    // Drops malformed and no-op components so they never enter history
+    private static List<TextOperation> normalize(List<TextOperation> ops) {
+        List<TextOperation> result = new ArrayList<>();
+        if (ops == null) return result;
+        for (TextOperation op : ops) {
+            if (op == null || op.getPosition() < 0) continue;
+            if (op.isInsert() && op.getText() != null && !op.getText().isEmpty()) {
+                result.add(TextOperation.insert(op.getPosition(), op.getText()));
+            } else if (op.isDelete() && op.getLength() > 0) {
+                result.add(TextOperation.delete(op.getPosition(), op.getLength()));
+            }
+        }
+        return result;
+    }
+
+    private static List<TextOperation> concat(List<TextOperation> a, List<TextOperation> b) {
+        if (a.isEmpty()) return b;
+        if (b.isEmpty()) return a;
+        List<TextOperation> result = new ArrayList<>(a.size() + b.size());
+        result.addAll(a);
+        result.addAll(b);
+        return result;
+    }
+
+    // =========================
+    // STATE
+    // =========================
+    private static class DocumentState {
+        private long revision;
+        private final Deque<List<TextOperation>> history = new ArrayDeque<>();
+        // False until the revision has been read from Redis once
+        private boolean synced;
+
+        void append(List<TextOperation> ops, int historySize) {
+            history.addLast(ops);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            revision++;
+        }
+    }
+
+    record Pair(List<TextOperation> left, List<TextOperation> right) {}
+
+    public record CommittedEdit(long revision, List<TextOperation> ops) {}
+}
@@ -1,37 +1,213 @@
 package com.veerana.collaboration_service.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate; // ✅ FIX: use StringRedisTemplate explicitly
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Per-member presence: {@code presence-hb:{documentId}} is a ZSET of emails
+ * scored by last heartbeat (epoch millis). Members whose heartbeat is older
+ * than the timeout are swept in bulk, so users of a crashed node disappear
+ * within one timeout instead of lingering for the lifetime of the key.
+ */
 @Service
 @RequiredArgsConstructor
 public class PresenceService {
 
+    // ZADD + PEXPIRE + live members in one round trip — used when this node has no cached list yet
+    private static final DefaultRedisScript<List> JOIN_AND_LIST = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[4]) " +
+            "return redis.call('ZRANGEBYSCORE', KEYS[1], ARGV[3], '+inf')",
+            List.class
+    );
+
+    // Removes and returns every member whose last heartbeat is at or before the cutoff
+    private static final DefaultRedisScript<List> SWEEP = new DefaultRedisScript<>(
+            "local stale = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1]) " +
+            "if #stale > 0 then redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1]) end " +
+            "return stale",
+            List.class
+    );
+
+    // Batch LEAVE for a draining node: removes each (key, email) pair only if its score is at or
+    // before the cutoff, so members that already re-joined through another node are kept.
+    // ARGV = cutoff, then per key: member count followed by the members. Returns key index, email pairs.
+    private static final DefaultRedisScript<List> LEAVE_IF_STALE = new DefaultRedisScript<>(
+            "local cutoff = tonumber(ARGV[1]) " +
+            "local removed = {} " +
+            "local i = 2 " +
+            "for k = 1, #KEYS do " +
+            "  local n = tonumber(ARGV[i]) i = i + 1 " +
+            "  for j = 1, n do " +
+            "    local email = ARGV[i] i = i + 1 " +
+            "    local score = redis.call('ZSCORE', KEYS[k], email) " +
+            "    if score and tonumber(score) <= cutoff then " +
+            "      redis.call('ZREM', KEYS[k], email) " +
+            "      removed[#removed + 1] = tostring(k) " +
+            "      removed[#removed + 1] = email " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return removed",
+            List.class
+    );
+
     // ✅ FIX: inject StringRedisTemplate directly instead of RedisTemplate<String, String>
     // Spring auto-configures a StringRedisTemplate bean — consistent with the
     // RedisTemplate<String, CollabMessage> bean in RedisConfig (no conflict)
     private final StringRedisTemplate stringRedisTemplate;
 
+    @Value("${collab.presence.timeout-ms:30000}")
+    private long timeoutMs;
+
+    // documentId → present users, for rooms open on this node.
+    // Kept current from the JOIN/LEAVE frames flowing through the room channel.
+    private final Map<String, Set<String>> localPresence = new ConcurrentHashMap<>();
+
     private String presenceKey(String documentId) {
-        return "presence:" + documentId;
+        return "presence-hb:" + documentId;
+    }
+
+    // Whole key outlives its members by a margin, so abandoned rooms clean themselves up
+    private long keyTtlMs() {
+        return timeoutMs * 10;
     }
 
-    public void userJoined(String documentId, String email) {
-        stringRedisTemplate.opsForSet().add(presenceKey(documentId), email);
-        stringRedisTemplate.expire(presenceKey(documentId), Duration.ofHours(1));
+    /**
+     * Records the join and returns who is present. The first join on this node
+     * loads the list with a single scripted call; later joins only pipeline the
+     * write and answer from the local cache.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> userJoined(String documentId, String email) {
+        Set<String> cached = localPresence.get(documentId);
+        if (cached != null) {
+            heartbeat(Map.of(documentId, Set.of(email)));
+            cached.add(email);
+            return Set.copyOf(cached);
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> members = stringRedisTemplate.execute(
+                JOIN_AND_LIST,
+                List.of(presenceKey(documentId)),
+                email,
+                String.valueOf(now),
+                String.valueOf(now - timeoutMs),
+                String.valueOf(keyTtlMs())
+        );
+
+        Set<String> present = localPresence.computeIfAbsent(documentId, k -> ConcurrentHashMap.newKeySet());
+        if (members != null) present.addAll(members);
+        present.add(email);
+        return Set.copyOf(present);
     }
 
     public void userLeft(String documentId, String email) {
-        stringRedisTemplate.opsForSet().remove(presenceKey(documentId), email);
+        stringRedisTemplate.opsForZSet().remove(presenceKey(documentId), email);
+        applyLeave(documentId, email);
     }
 
     public Set<String> getPresence(String documentId) {
-        Set<String> members = stringRedisTemplate.opsForSet().members(presenceKey(documentId));
+        Set<String> cached = localPresence.get(documentId);
+        if (cached != null) return Set.copyOf(cached);
+
+        Set<String> members = stringRedisTemplate.opsForZSet().rangeByScore(
+                presenceKey(documentId), System.currentTimeMillis() - timeoutMs, Double.POSITIVE_INFINITY);
         return members != null ? members : Collections.emptySet(); // ✅ FIX: never return null
     }
-}
\ No newline at end of file
+
+    /**
+     * Refreshes the heartbeat of every live (documentId → emails) pair in one
+     * pipeline — called once per heartbeat tick for all rooms on this node.
+     */
+    public void heartbeat(Map<String, Set<String>> liveMembers) {
+        if (liveMembers.isEmpty()) return;
+        double now = System.currentTimeMillis();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            liveMembers.forEach((documentId, emails) -> {
+                byte[] key = presenceKey(documentId).getBytes(StandardCharsets.UTF_8);
+                for (String email : emails) {
+                    connection.zSetCommands().zAdd(key, now, email.getBytes(StandardCharsets.UTF_8));
+                }
+                connection.keyCommands().pExpire(key, keyTtlMs());
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Atomically evicts members whose heartbeat timed out. Safe to run on every
+     * node hosting the room — each stale member is returned to exactly one caller.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> sweep(String documentId) {
+        List<String> stale = stringRedisTemplate.execute(
+                SWEEP,
+                List.of(presenceKey(documentId)),
+                String.valueOf(System.currentTimeMillis() - timeoutMs)
+        );
+        return stale != null ? new LinkedHashSet<>(stale) : Collections.emptySet();
+    }
+
+    /**
+     * Presence cleanup for every session a draining node closed, in one scripted
+     * call. Members whose heartbeat is newer than {@code cutoff} have already
+     * reconnected elsewhere and stay. Returns who was actually removed.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Set<String>> leaveAll(Map<String, Set<String>> members, long cutoff) {
+        if (members.isEmpty()) return Collections.emptyMap();
+
+        List<String> documentIds = new ArrayList<>(members.keySet());
+        List<String> keys = new ArrayList<>(documentIds.size());
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(cutoff));
+        for (String documentId : documentIds) {
+            Set<String> emails = members.get(documentId);
+            keys.add(presenceKey(documentId));
+            args.add(String.valueOf(emails.size()));
+            args.addAll(emails);
+        }
+
+        List<String> removed = stringRedisTemplate.execute(LEAVE_IF_STALE, keys, args.toArray());
+        Map<String, Set<String>> result = new HashMap<>();
+        if (removed == null) return result;
+        for (int i = 0; i + 1 < removed.size(); i += 2) {
+            String documentId = documentIds.get(Integer.parseInt(removed.get(i)) - 1);
+            result.computeIfAbsent(documentId, k -> new LinkedHashSet<>()).add(removed.get(i + 1));
+        }
+        return result;
+    }
+
+    // JOIN seen on the room channel (from any node)
+    public void applyJoin(String documentId, String email) {
+        Set<String> cached = localPresence.get(documentId);
+        if (cached != null && email != null) cached.add(email);
+    }
+
+    // LEAVE seen on the room channel (from any node)
+    public void applyLeave(String documentId, String email) {
+        Set<String> cached = localPresence.get(documentId);
+        if (cached != null && email != null) cached.remove(email);
+    }
+
+    // Called when the last local session leaves the room
+    public void release(String documentId) {
+        localPresence.remove(documentId);
+    }
+}
@@ -0,0 +1,172 @@
+package com.veerana.collaboration_service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which collaboration-service nodes host sessions for each document,
+ * so a message is only forwarded to the nodes that need it.
+ *
+ * The registry lives in Redis ({@code room-nodes-hb:{documentId}}), a ZSET of
+ * node ids scored by last heartbeat like presence. A node that dies without
+ * unregistering stops refreshing its score and is dropped on the next lookup
+ * once the node timeout has passed. Lookups are cached locally and evicted
+ * whenever any node joins or leaves a room.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomRegistry {
+
+    public static final String NODE_CHANNEL_PREFIX = "collab-node:";
+    private static final String REGISTRY_CHANNEL   = "collab-registry";
+
+    // Drops nodes whose heartbeat is at or before the cutoff and returns the live ones, in one round trip
+    private static final DefaultRedisScript<List> LIVE_NODES = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1]) " +
+            "return redis.call('ZRANGE', KEYS[1], 0, -1)",
+            List.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${collab.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${collab.affinity.cache-ttl-ms:1000}")
+    private long cacheTtlMs;
+
+    // A node missing heartbeats for this long is treated as gone
+    @Value("${collab.affinity.node-timeout-ms:30000}")
+    private long nodeTimeoutMs;
+
+    private String nodeId;
+
+    // documentIds with at least one session on this node
+    private final Set<String> localRooms = ConcurrentHashMap.newKeySet();
+
+    // documentId → other nodes hosting it (short-lived cache)
+    private final Map<String, CachedNodes> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId.isBlank() ? UUID.randomUUID().toString() : configuredNodeId;
+
+        // Any node changing a room's membership evicts that room everywhere
+        listenerContainer.addMessageListener(
+                (message, pattern) -> cache.remove(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(REGISTRY_CHANNEL)
+        );
+        log.info("Collaboration node id {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String nodeChannel() {
+        return NODE_CHANNEL_PREFIX + nodeId;
+    }
+
+    private String registryKey(String documentId) {
+        return "room-nodes-hb:" + documentId;
+    }
+
+    // First local session for the document — advertise this node (idempotent)
+    public void register(String documentId) {
+        if (!localRooms.add(documentId)) return;
+        byte[] key = registryKey(documentId).getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zAdd(key, System.currentTimeMillis(), nodeId.getBytes(StandardCharsets.UTF_8));
+            connection.keyCommands().pExpire(key, keyTtlMs());
+            return null;
+        });
+        stringRedisTemplate.convertAndSend(REGISTRY_CHANNEL, documentId);
+    }
+
+    // Last local session left — stop receiving forwarded messages (idempotent)
+    public void unregister(String documentId) {
+        if (!localRooms.remove(documentId)) return;
+        stringRedisTemplate.opsForZSet().remove(registryKey(documentId), nodeId);
+        stringRedisTemplate.convertAndSend(REGISTRY_CHANNEL, documentId);
+    }
+
+    // Refreshes this node's score in every room it hosts, in one pipeline
+    @Scheduled(fixedRateString = "${collab.affinity.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (localRooms.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        byte[] member = nodeId.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String documentId : localRooms) {
+                byte[] key = registryKey(documentId).getBytes(StandardCharsets.UTF_8);
+                connection.zSetCommands().zAdd(key, now, member);
+                connection.keyCommands().pExpire(key, keyTtlMs());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Other live nodes currently hosting the document. Empty for single-node
+     * rooms, in which case nothing needs to go through Redis at all.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> otherNodes(String documentId) {
+        long now = System.currentTimeMillis();
+        CachedNodes cached = cache.get(documentId);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.nodes();
+        }
+
+        List<String> members = stringRedisTemplate.execute(
+                LIVE_NODES,
+                List.of(registryKey(documentId)),
+                String.valueOf(now - nodeTimeoutMs)
+        );
+        Set<String> others = new HashSet<>(members != null ? members : Collections.emptyList());
+        others.remove(nodeId);
+
+        Set<String> result = Collections.unmodifiableSet(others);
+        cache.put(documentId, new CachedNodes(result, now + cacheTtlMs));
+        return result;
+    }
+
+    // The key outlives a crashed node's last heartbeat by a wide margin, then goes away on its own
+    private long keyTtlMs() {
+        return nodeTimeoutMs * 10;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (String documentId : Set.copyOf(localRooms)) {
+            try {
+                unregister(documentId);
+            } catch (Exception e) {
+                log.warn("Could not unregister node {} from document {}", nodeId, documentId, e);
+            }
+        }
+    }
+
+    private record CachedNodes(Set<String> nodes, long expiresAt) {}
+}
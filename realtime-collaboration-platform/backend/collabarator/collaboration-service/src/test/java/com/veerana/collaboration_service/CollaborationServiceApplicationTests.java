@@ -3,7 +3,7 @@ package com.veerana.collaboration_service;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "INTERNAL_TOKEN=test-internal-token")
 class CollaborationServiceApplicationTests {
 
 	@Test
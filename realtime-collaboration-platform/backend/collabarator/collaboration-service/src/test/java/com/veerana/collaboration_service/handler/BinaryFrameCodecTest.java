@@ -0,0 +1,163 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.dto.TextOperation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryFrameCodecTest {
+
+    private final BinaryFrameCodec codec = new BinaryFrameCodec();
+
+    // =========================
+    // ROUND TRIP
+    // =========================
+    @Test
+    void editRoundTrip() {
+        CollabMessage sent = CollabMessage.builder()
+                .type("EDIT")
+                .userEmail("alice@example.com")
+                .revision(42L)
+                .ops(List.of(
+                        TextOperation.insert(3, "héllo ✓"),
+                        TextOperation.delete(10, 4)))
+                .timestamp(1_700_000_000_000L)
+                .build();
+
+        CollabMessage decoded = codec.decode(ByteBuffer.wrap(codec.encode("doc-1", sent)));
+
+        assertThat(decoded.getType()).isEqualTo("EDIT");
+        assertThat(decoded.getRevision()).isEqualTo(42L);
+        assertThat(decoded.getOps()).containsExactly(
+                TextOperation.insert(3, "héllo ✓"),
+                TextOperation.delete(10, 4));
+        // The server always overrides the sender
+        assertThat(decoded.getUserEmail()).isNull();
+    }
+
+    @Test
+    void cursorRoundTripAfterUserIsInterned() {
+        codec.encode("doc-1", CollabMessage.builder().type("JOIN").userEmail("bob@example.com").build());
+        CollabMessage sent = CollabMessage.builder()
+                .type("CURSOR")
+                .userEmail("bob@example.com")
+                .content("17")
+                .build();
+
+        CollabMessage decoded = codec.decode(ByteBuffer.wrap(codec.encode("doc-1", sent)));
+
+        assertThat(decoded.getType()).isEqualTo("CURSOR");
+        assertThat(decoded.getContent()).isEqualTo("17");
+    }
+
+    @Test
+    void customTypeRoundTrip() {
+        CollabMessage sent = CollabMessage.builder().type("RECONNECT").content("250").build();
+
+        CollabMessage decoded = codec.decode(ByteBuffer.wrap(codec.encode("doc-1", sent)));
+
+        assertThat(decoded.getType()).isEqualTo("RECONNECT");
+        assertThat(decoded.getContent()).isEqualTo("250");
+    }
+
+    @Test
+    void emptyOpsRoundTrip() {
+        CollabMessage sent = CollabMessage.builder().type("EDIT").revision(0L).ops(List.of()).build();
+
+        CollabMessage decoded = codec.decode(ByteBuffer.wrap(codec.encode("doc-1", sent)));
+
+        assertThat(decoded.getOps()).isEmpty();
+        assertThat(decoded.getRevision()).isZero();
+    }
+
+    // =========================
+    // MALFORMED FRAMES
+    // =========================
+    @Test
+    void rejectsEmptyFrame() {
+        assertMalformed(new byte[0]);
+    }
+
+    @Test
+    void rejectsUnknownType() {
+        assertMalformed(new Frame().raw(100).varint(0).bytes());
+    }
+
+    @Test
+    void rejectsStringLongerThanFrame() {
+        // CONTENT claims 1 MB but carries three bytes
+        assertMalformed(new Frame().raw(4).varint(2).varint(1 << 20).raw('a').raw('b').raw('c').bytes());
+    }
+
+    @Test
+    void rejectsNegativeStringLength() {
+        // Ten-byte varint that decodes to -1
+        Frame frame = new Frame().raw(4).varint(2);
+        for (int i = 0; i < 9; i++) frame.raw(0xFF);
+        assertMalformed(frame.raw(0x01).bytes());
+    }
+
+    @Test
+    void rejectsLengthAboveIntRange() {
+        assertMalformed(new Frame().raw(4).varint(2).varint(1L << 33).bytes());
+    }
+
+    @Test
+    void rejectsOpCountAboveMaximum() {
+        Frame frame = new Frame().raw(3).varint(1 << 3).varint(BinaryFrameCodec.MAX_OPS + 1);
+        // Enough bytes that only the hard cap can reject it
+        for (int i = 0; i < (BinaryFrameCodec.MAX_OPS + 1) * 3; i++) frame.raw(1);
+        assertMalformed(frame.bytes());
+    }
+
+    @Test
+    void rejectsOpCountLargerThanFrame() {
+        // A 2^31-1 count must not size an ArrayList before the ops are read
+        assertMalformed(new Frame().raw(3).varint(1 << 3).varint(Integer.MAX_VALUE).raw(0).bytes());
+    }
+
+    @Test
+    void rejectsTruncatedOp() {
+        // One insert op whose text is cut off
+        assertMalformed(new Frame().raw(3).varint(1 << 3).varint(1).raw(0).varint(0).varint(5).raw('x').bytes());
+    }
+
+    @Test
+    void rejectsUnterminatedVarint() {
+        assertMalformed(new Frame().raw(3).raw(0x80).raw(0x80).bytes());
+    }
+
+    private void assertMalformed(byte[] frame) {
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(frame)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Hand-built frame bytes
+    private static class Frame {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Frame raw(int b) {
+            out.write(b);
+            return this;
+        }
+
+        Frame varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+            return this;
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.veerana.collaboration_service.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.service.CollabMetrics;
+import com.veerana.collaboration_service.service.CursorCoalescer;
+import com.veerana.collaboration_service.service.DocumentAccessService;
+import com.veerana.collaboration_service.service.DocumentSnapshotService;
+import com.veerana.collaboration_service.service.OpLogService;
+import com.veerana.collaboration_service.service.OperationalTransformService;
+import com.veerana.collaboration_service.service.PresenceService;
+import com.veerana.collaboration_service.service.RoomRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollabWebSocketHandlerDrainTest {
+
+    private static final String DOC = "doc-1";
+    private static final String EMAIL = "alice@example.com";
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    // The Spring send executor, shut down by the time the drain runs
+    private final AtomicBoolean sendExecutorDown = new AtomicBoolean();
+    private final PresenceService presenceService = mock(PresenceService.class);
+    private SessionDrainer drainer;
+    private CollabWebSocketHandler handler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        RoomDispatcher roomDispatcher = mock(RoomDispatcher.class);
+        CollabMetrics metrics = new CollabMetrics(new SimpleMeterRegistry());
+        BinaryFrameCodec binaryCodec = mock(BinaryFrameCodec.class);
+        FrameCompressor compressor = mock(FrameCompressor.class);
+
+        RoomRouter router = new RoomRouter(objectMapper, mock(RedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), mock(RoomRegistry.class), roomDispatcher, metrics);
+        ReflectionTestUtils.setField(router, "redisRouting", RoomRouter.RedisRouting.PER_DOCUMENT);
+        drainer = new SessionDrainer(presenceService);
+        ReflectionTestUtils.setField(drainer, "drainThreads", 2);
+
+        handler = new CollabWebSocketHandler(
+                objectMapper,
+                presenceService,
+                mock(OperationalTransformService.class),
+                task -> {
+                    if (sendExecutorDown.get()) throw new RejectedExecutionException("shut down");
+                    task.run();
+                },
+                mock(CursorCoalescer.class),
+                binaryCodec,
+                mock(OpLogService.class),
+                mock(DocumentSnapshotService.class),
+                roomDispatcher,
+                metrics,
+                mock(DocumentAccessService.class),
+                compressor,
+                new FrameEncoder(objectMapper, binaryCodec, compressor),
+                mock(OpLogReplayer.class),
+                router,
+                drainer);
+        ReflectionTestUtils.setField(handler, "sendQueueCapacity", 16);
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMs", 10_000L);
+        ReflectionTestUtils.setField(handler, "overflowPolicy", SessionOutbound.OverflowPolicy.DROP_CURSOR);
+
+        when(presenceService.userJoined(anyString(), anyString())).thenReturn(Set.of(EMAIL));
+        when(presenceService.leaveAll(anyMap(), anyLong())).thenReturn(Map.of());
+    }
+
+    @Test
+    void drainSendsReconnectAndClosesSessionWithoutSendExecutor() throws Exception {
+        WebSocketSession session = session("s1", true);
+        handler.afterConnectionEstablished(session);
+        sendExecutorDown.set(true);
+
+        long start = System.currentTimeMillis();
+        handler.drain(0, 200, 5_000);
+
+        assertThat(sent).anySatisfy(frame -> assertThat(frame).contains("\"type\":\"RECONNECT\""));
+        verify(session).close(CloseStatus.SERVICE_RESTARTED);
+        // Returned once the session was gone, not at the deadline
+        assertThat(System.currentTimeMillis() - start).isLessThan(2_000);
+        assertThat(drainer.isDraining()).isTrue();
+    }
+
+    @Test
+    void sessionStillOpenAtDeadlineIsForceClosed() throws Exception {
+        // The container never reports this close back
+        WebSocketSession session = session("s1", false);
+        handler.afterConnectionEstablished(session);
+
+        long start = System.currentTimeMillis();
+        handler.drain(0, 0, 300);
+
+        assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(300);
+        verify(session, atLeastOnce()).close(CloseStatus.SERVICE_RESTARTED);
+    }
+
+    @Test
+    void drainingNodeIsOutOfServiceAndClientsWaitAtLeastTheMinimumDelay() throws Exception {
+        DrainHealthIndicator health = new DrainHealthIndicator(drainer);
+        assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+
+        WebSocketSession session = session("s1", true);
+        handler.afterConnectionEstablished(session);
+        handler.drain(300, 100, 5_000);
+
+        assertThat(health.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        CollabMessage reconnect = sent.stream()
+                .map(CollabWebSocketHandlerDrainTest::readQuietly)
+                .filter(msg -> "RECONNECT".equals(msg.getType()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(Long.parseLong(reconnect.getContent())).isBetween(300L, 400L);
+    }
+
+    private static CollabMessage readQuietly(String frame) {
+        try {
+            return new ObjectMapper().readValue(frame, CollabMessage.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private WebSocketSession session(String id, boolean reportsClose) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-User-Email", EMAIL);
+        when(session.getId()).thenReturn(id);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/collab/" + DOC));
+        when(session.getHandshakeHeaders()).thenReturn(headers);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            sent.add(((WebSocketMessage<?>) inv.getArgument(0)).getPayload().toString());
+            return null;
+        }).when(session).sendMessage(any());
+        if (reportsClose) {
+            doAnswer(inv -> {
+                handler.afterConnectionClosed(session, inv.getArgument(0));
+                return null;
+            }).when(session).close(any(CloseStatus.class));
+        }
+        return session;
+    }
+}
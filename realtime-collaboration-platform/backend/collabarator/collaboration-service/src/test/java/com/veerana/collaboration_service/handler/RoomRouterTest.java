@@ -0,0 +1,77 @@
+package com.veerana.collaboration_service.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.CollabMessage;
+import com.veerana.collaboration_service.service.CollabMetrics;
+import com.veerana.collaboration_service.service.RoomRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoomRouterTest {
+
+    private static final String DOC = "doc-1";
+
+    private final Deque<Runnable> dispatchTasks = new ArrayDeque<>();
+    private final List<String> delivered = new ArrayList<>();
+    private RoomRouter router;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        CollabMetrics metrics = new CollabMetrics(new SimpleMeterRegistry());
+        RoomRegistry roomRegistry = mock(RoomRegistry.class);
+        when(roomRegistry.nodeChannel()).thenReturn("collab-node:test");
+        router = new RoomRouter(new ObjectMapper(), mock(RedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), roomRegistry,
+                new RoomDispatcher(dispatchTasks::add), metrics);
+        ReflectionTestUtils.setField(router, "redisRouting", RoomRouter.RedisRouting.NODE_AFFINITY);
+        router.start(new RoomRouter.Delivery() {
+            @Override
+            public boolean hosts(String documentId) {
+                return true;
+            }
+
+            @Override
+            public void deliver(String documentId, byte[] json, RoomRouter.FrameHeader header) {
+                delivered.add(header.type());
+            }
+        });
+    }
+
+    @Test
+    void localPublishesTakeTheRoomDispatcherInOrder() {
+        router.publish(DOC, message("EDIT"));
+        router.publish(DOC, message("CURSOR"));
+
+        // Not fanned out on the publishing thread
+        assertThat(delivered).isEmpty();
+
+        Runnable task;
+        while ((task = dispatchTasks.pollFirst()) != null) {
+            task.run();
+        }
+        assertThat(delivered).containsExactly("EDIT", "CURSOR");
+    }
+
+    private static CollabMessage message(String type) {
+        return CollabMessage.builder()
+                .type(type)
+                .documentId(DOC)
+                .userEmail("alice@example.com")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+}
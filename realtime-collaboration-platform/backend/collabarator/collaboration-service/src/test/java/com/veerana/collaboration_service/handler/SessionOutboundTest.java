@@ -0,0 +1,206 @@
+package com.veerana.collaboration_service.handler;
+
+import com.veerana.collaboration_service.service.CollabMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionOutboundTest {
+
+    private final CollabMetrics metrics = new CollabMetrics(new SimpleMeterRegistry());
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            sent.add(((WebSocketMessage<?>) inv.getArgument(0)).getPayload().toString());
+            return null;
+        }).when(session).sendMessage(any());
+    }
+
+    // =========================
+    // CURSOR COALESCING
+    // =========================
+    @Test
+    void cursorReplacesOnlySameUsersCursor() {
+        SessionOutbound outbound = outbound(10, SessionOutbound.OverflowPolicy.COALESCE);
+        outbound.hold();
+
+        outbound.enqueue(text("alice-1"), "CURSOR", "alice");
+        outbound.enqueue(text("batch-1"), "CURSORS", null);
+        outbound.enqueue(text("bob-1"), "CURSOR", "bob");
+        outbound.enqueue(text("alice-2"), "CURSOR", "alice");
+        outbound.resume(List.of(), "EDIT");
+
+        assertThat(sent).containsExactly("batch-1", "bob-1", "alice-2");
+    }
+
+    @Test
+    void batchReplacesOnlyOlderBatches() {
+        SessionOutbound outbound = outbound(10, SessionOutbound.OverflowPolicy.COALESCE);
+        outbound.hold();
+
+        outbound.enqueue(text("batch-1"), "CURSORS", null);
+        outbound.enqueue(text("alice-1"), "CURSOR", "alice");
+        outbound.enqueue(text("ping"), "PING", null);
+        outbound.enqueue(text("batch-2"), "CURSORS", null);
+        outbound.resume(List.of(), "EDIT");
+
+        assertThat(sent).containsExactly("alice-1", "ping", "batch-2");
+    }
+
+    // =========================
+    // SEND TIME LIMIT
+    // =========================
+    @Test
+    void blockedSendClosesSessionAndFreesSendThread() throws Exception {
+        WebSocketSession blocking = mock(WebSocketSession.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch socketClosed = new CountDownLatch(1);
+        when(blocking.getId()).thenReturn("stuck");
+        when(blocking.isOpen()).thenReturn(true);
+        // A client that stopped reading: the write only returns (failing) once the socket is closed
+        doAnswer(inv -> {
+            sending.countDown();
+            socketClosed.await();
+            throw new IOException("Socket closed");
+        }).when(blocking).sendMessage(any());
+        doAnswer(inv -> {
+            socketClosed.countDown();
+            return null;
+        }).when(blocking).close(any());
+
+        ExecutorService sendThread = Executors.newSingleThreadExecutor();
+        try {
+            SessionOutbound outbound = new SessionOutbound(blocking, WireFormat.JSON, sendThread, 10,
+                    SessionOutbound.OverflowPolicy.DROP_CURSOR, metrics, false, 100);
+            outbound.enqueue(text("edit-1"), "EDIT", "alice");
+            assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+            long now = System.currentTimeMillis();
+            assertThat(outbound.closeIfSendStuck(now)).isFalse();
+            assertThat(outbound.closeIfSendStuck(now + 200)).isTrue();
+
+            verify(blocking).close(CloseStatus.SESSION_NOT_RELIABLE);
+            // The send thread is usable again for other sessions
+            assertThat(sendThread.submit(() -> true).get(5, TimeUnit.SECONDS)).isTrue();
+            // Nothing more is queued for the closed session
+            outbound.enqueue(text("edit-2"), "EDIT", "alice");
+            assertThat(outbound.size()).isZero();
+        } finally {
+            sendThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedSendClosesSessionInsteadOfRetryingEachFrame() throws Exception {
+        doAnswer(inv -> {
+            throw new IOException("Broken pipe");
+        }).when(session).sendMessage(any());
+        SessionOutbound outbound = outbound(10, SessionOutbound.OverflowPolicy.DROP_CURSOR);
+        outbound.hold();
+        outbound.enqueue(text("edit-1"), "EDIT", "alice");
+        outbound.enqueue(text("edit-2"), "EDIT", "alice");
+
+        outbound.resume(List.of(), "EDIT");
+
+        verify(session, timeout(1000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, timeout(1000).times(1)).sendMessage(any());
+        assertThat(outbound.size()).isZero();
+    }
+
+    @Test
+    void overflowClosesSessionInlineWhenSendExecutorIsDown() throws Exception {
+        SessionOutbound outbound = new SessionOutbound(session, WireFormat.JSON,
+                task -> { throw new RejectedExecutionException("shut down"); },
+                1, SessionOutbound.OverflowPolicy.CLOSE, metrics, false, 10_000);
+        outbound.hold();
+        outbound.enqueue(text("edit-1"), "EDIT", "alice");
+
+        outbound.enqueue(text("edit-2"), "EDIT", "alice");
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(outbound.size()).isZero();
+    }
+
+    @Test
+    void idleSessionIsNeverStuck() throws Exception {
+        SessionOutbound outbound = outbound(10, SessionOutbound.OverflowPolicy.DROP_CURSOR);
+        outbound.enqueue(text("edit-1"), "EDIT", "alice");
+
+        assertThat(outbound.closeIfSendStuck(System.currentTimeMillis() + 60_000)).isFalse();
+        verify(session, never()).close(any());
+        assertThat(sent).containsExactly("edit-1");
+    }
+
+    // =========================
+    // VIEWER CURSOR THROTTLE
+    // =========================
+    @Test
+    void viewerThrottleSendsNewestSkippedBatchWhenWindowExpires() {
+        SessionOutbound outbound = outbound(10, SessionOutbound.OverflowPolicy.DROP_CURSOR);
+
+        outbound.offerViewerCursor(text("batch-1"), "CURSORS", null, 1_000, 250);
+        outbound.offerViewerCursor(text("batch-2"), "CURSORS", null, 1_050, 250);
+        outbound.offerViewerCursor(text("batch-3"), "CURSORS", null, 1_100, 250);
+        assertThat(sent).containsExactly("batch-1");
+
+        outbound.flushDeferredCursors(1_200, 250);
+        assertThat(sent).containsExactly("batch-1");
+
+        outbound.flushDeferredCursors(1_250, 250);
+        assertThat(sent).containsExactly("batch-1", "batch-3");
+
+        // Nothing left to send
+        outbound.flushDeferredCursors(2_000, 250);
+        assertThat(sent).containsExactly("batch-1", "batch-3");
+    }
+
+    @Test
+    void viewerThrottleKeepsNewestSkippedCursorPerUser() {
+        SessionOutbound outbound = outbound(10, SessionOutbound.OverflowPolicy.DROP_CURSOR);
+
+        outbound.offerViewerCursor(text("alice-1"), "CURSOR", "alice", 1_000, 250);
+        outbound.offerViewerCursor(text("alice-2"), "CURSOR", "alice", 1_010, 250);
+        outbound.offerViewerCursor(text("bob-1"), "CURSOR", "bob", 1_020, 250);
+        outbound.offerViewerCursor(text("alice-3"), "CURSOR", "alice", 1_030, 250);
+        // Next due frame carries the held-back ones with it; its own sender's stale entry is dropped
+        outbound.offerViewerCursor(text("bob-2"), "CURSOR", "bob", 1_300, 250);
+
+        assertThat(sent).containsExactly("alice-1", "alice-3", "bob-2");
+    }
+
+    private SessionOutbound outbound(int capacity, SessionOutbound.OverflowPolicy policy) {
+        return new SessionOutbound(session, WireFormat.JSON, Runnable::run, capacity, policy, metrics, false, 10_000);
+    }
+
+    private static TextMessage text(String payload) {
+        return new TextMessage(payload);
+    }
+}
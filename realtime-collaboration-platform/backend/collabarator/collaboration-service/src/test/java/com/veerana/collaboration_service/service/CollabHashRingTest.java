@@ -0,0 +1,70 @@
+package com.veerana.collaboration_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CollabHashRingTest {
+
+    private static final URI SELF = URI.create("http://collab-1:8085");
+    private static final URI OTHER = URI.create("http://collab-2:8085");
+
+    @Test
+    void roomsOwnedElsewhereAreReportedOnlyOnceRingSettled() {
+        CollabHashRing ring = ring(SELF + "," + OTHER, SELF.toString());
+        String elsewhere = documentOwnedBy(OTHER);
+        long now = System.currentTimeMillis();
+
+        assertThat(ring.ownedElsewhere(elsewhere, now)).isFalse();
+        assertThat(ring.ownedElsewhere(elsewhere, now + 15_000)).isTrue();
+        assertThat(ring.ownedElsewhere(documentOwnedBy(SELF), now + 15_000)).isFalse();
+    }
+
+    @Test
+    void disabledWithoutNodes() {
+        CollabHashRing ring = ring("", "");
+
+        assertThat(ring.isEnabled()).isFalse();
+        assertThat(ring.ownedElsewhere("doc", Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test
+    void selfMustBeAMember() {
+        assertThatThrownBy(() -> ring(SELF + "," + OTHER, "http://collab-9:8085"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void healthIsProbedOnManagementPortWhenSet() {
+        assertThat(CollabHashRing.healthUri(SELF, 9085, "/actuator/health"))
+                .isEqualTo(URI.create("http://collab-1:9085/actuator/health"));
+        assertThat(CollabHashRing.healthUri(SELF, 0, "/actuator/health"))
+                .isEqualTo(URI.create("http://collab-1:8085/actuator/health"));
+    }
+
+    private static CollabHashRing ring(String nodes, String self) {
+        CollabHashRing ring = new CollabHashRing();
+        ReflectionTestUtils.setField(ring, "configuredNodes", nodes);
+        ReflectionTestUtils.setField(ring, "configuredSelf", self);
+        ReflectionTestUtils.setField(ring, "virtualNodes", 128);
+        ReflectionTestUtils.setField(ring, "settleMs", 15_000L);
+        ReflectionTestUtils.invokeMethod(ring, "init");
+        return ring;
+    }
+
+    private static String documentOwnedBy(URI node) {
+        var members = CollabHashRing.build(List.of(SELF, OTHER), 128);
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> new UUID(0, i).toString())
+                .filter(id -> node.equals(CollabHashRing.owner(members, id)))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,325 @@
+package com.veerana.collaboration_service.service;
+
+import com.veerana.collaboration_service.dto.TextOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class DocumentSnapshotServiceTest {
+
+    private static final String DOC = "doc-1";
+
+    // Redis state: lease owners and revision records
+    private final Map<String, String> leases = new HashMap<>();
+    private final Map<String, Map<Object, Object>> records = new HashMap<>();
+
+    // Runs newest first, so work that is not explicitly ordered after other work overtakes it
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private final OperationalTransformService otService = mock(OperationalTransformService.class);
+    private MockRestServiceServer documentService;
+    private DocumentSnapshotService snapshots;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            RedisScript<?> script = inv.getArgument(0);
+            String key = ((List<String>) inv.getArgument(1)).get(0);
+            String token = inv.getArgument(2);
+            String owner = leases.get(key);
+            if (script.getScriptAsString().contains("'SET'")) {
+                if (owner != null && !owner.equals(token)) return 0L;
+                leases.put(key, token);
+                return 1L;
+            }
+            return token.equals(owner) && leases.remove(key) != null ? 1L : 0L;
+        });
+
+        HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+        when(redis.<Object, Object>opsForHash()).thenReturn(hashes);
+        when(hashes.entries(anyString()))
+                .thenAnswer(inv -> Map.copyOf(records.getOrDefault(inv.getArgument(0), Map.of())));
+
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisHashCommands hashCommands = mock(RedisHashCommands.class);
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        when(connection.keyCommands()).thenReturn(mock(RedisKeyCommands.class));
+        doAnswer(inv -> {
+            Map<Object, Object> record = records.computeIfAbsent(text(inv.getArgument(0)), k -> new HashMap<>());
+            ((Map<byte[], byte[]>) inv.getArgument(1)).forEach((field, value) -> record.put(text(field), text(value)));
+            return null;
+        }).when(hashCommands).hMSet(any(byte[].class), anyMap());
+        when(redis.executePipelined(any(RedisCallback.class))).thenAnswer(inv -> {
+            ((RedisCallback<?>) inv.getArgument(0)).doInRedis(connection);
+            return List.of();
+        });
+
+        TaskExecutor executor = tasks::add;
+        snapshots = new DocumentSnapshotService(executor, redis, otService);
+        ReflectionTestUtils.setField(snapshots, "enabled", true);
+        ReflectionTestUtils.setField(snapshots, "debounceMs", 0L);
+        ReflectionTestUtils.setField(snapshots, "maxDelayMs", 10_000L);
+        ReflectionTestUtils.setField(snapshots, "leaseMs", 15_000L);
+        ReflectionTestUtils.setField(snapshots, "recordTtlMs", 60_000L);
+
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://documents");
+        documentService = MockRestServiceServer.bindTo(builder).build();
+        ReflectionTestUtils.setField(snapshots, "documentClient", builder.build());
+
+        when(otService.committedSince(eq(DOC), anyLong())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void verifyRequests() {
+        documentService.verify();
+    }
+
+    // =========================
+    // WRITER
+    // =========================
+    @Test
+    void writerFoldsEveryRevisionInOrderWhateverNodeCommittedIt() {
+        expectLoad("hello", 4);
+        expectWrite("hello world!", 4, true, 5);
+        snapshots.open(DOC);
+        runTasks();
+        assertThat(snapshots.accepts(DOC)).isTrue();
+
+        // Revision 2 was forwarded from another node and overtook revision 1
+        snapshots.apply(DOC, 2, List.of(TextOperation.insert(11, "!")));
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(5, " world")));
+        // Already folded — delivered again after a catch-up
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(5, " world")));
+
+        snapshots.flush();
+        runTasks();
+
+        assertThat(records.get(recordKey())).containsEntry("rev", "2").containsEntry("hash", sha256("hello world!"));
+    }
+
+    @Test
+    void holeInBroadcastStreamIsFilledFromRevisionLog() {
+        expectLoad("ab", 0);
+        expectWrite("abcd", 0, true, 1);
+        snapshots.open(DOC);
+        runTasks();
+
+        snapshots.apply(DOC, 2, List.of(TextOperation.insert(3, "d")));
+        when(otService.committedSince(DOC, 0)).thenReturn(List.of(
+                List.of(TextOperation.insert(2, "c")),
+                List.of(TextOperation.insert(3, "d"))));
+
+        snapshots.flush();
+        runTasks();
+    }
+
+    @Test
+    void passiveNodeKeepsNoCopyAndWritesNothing() {
+        leases.put(leaseKey(), "other-node");
+        snapshots.open(DOC);
+        runTasks();
+
+        assertThat(snapshots.accepts(DOC)).isFalse();
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(0, "x")));
+        snapshots.flush();
+        runTasks();
+    }
+
+    @Test
+    void takeoverContinuesFromRevisionOfLastWrite() {
+        // Claims are retried on every flush
+        ReflectionTestUtils.setField(snapshots, "leaseMs", 0L);
+        leases.put(leaseKey(), "crashed-node");
+        records.put(recordKey(), new HashMap<>(Map.of("rev", "3", "hash", sha256("abc"))));
+        when(otService.headRevision(DOC)).thenReturn(5L);
+        when(otService.committedSince(DOC, 3)).thenReturn(List.of(
+                List.of(TextOperation.insert(3, "d")),
+                List.of(TextOperation.insert(4, "e"))));
+        expectLoad("abc", 2);
+        expectWrite("abcde", 2, true, 3);
+        snapshots.open(DOC);
+        runTasks();
+        assertThat(snapshots.accepts(DOC)).isFalse();
+
+        // The crashed writer's lease runs out; the next retry claims the room
+        leases.remove(leaseKey());
+        snapshots.flush();
+        runTasks();
+
+        snapshots.flush();
+        runTasks();
+        assertThat(records.get(recordKey())).containsEntry("rev", "5");
+    }
+
+    @Test
+    void nextWriteExpectsVersionOfPreviousOne() {
+        expectLoad("a", 7);
+        expectWrite("ab", 7, true, 8);
+        expectWrite("abc", 8, true, 9);
+        snapshots.open(DOC);
+        runTasks();
+
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(1, "b")));
+        snapshots.flush();
+        runTasks();
+        snapshots.apply(DOC, 2, List.of(TextOperation.insert(2, "c")));
+        snapshots.flush();
+        runTasks();
+    }
+
+    @Test
+    void flushLeavesTheWriteToTheSnapshotExecutor() {
+        expectLoad("a", 7);
+        expectWrite("ab", 7, true, 8);
+        snapshots.open(DOC);
+        runTasks();
+
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(1, "b")));
+        snapshots.flush();
+        assertThat(tasks).hasSize(1);
+        // The write is still in flight — the next flush does not take the room again
+        snapshots.apply(DOC, 2, List.of(TextOperation.insert(2, "c")));
+        snapshots.flush();
+        assertThat(tasks).hasSize(1);
+
+        runTasks();
+        assertThat(records.get(recordKey())).containsEntry("rev", "1");
+    }
+
+    @Test
+    void writerStopsWhenDocumentChangedOutsideRoom() {
+        expectLoad("a", 7);
+        // Someone replaced the document with a PUT meanwhile
+        expectWrite("ab", 7, false, 8);
+        snapshots.open(DOC);
+        runTasks();
+
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(1, "b")));
+        snapshots.flush();
+        runTasks();
+
+        assertThat(snapshots.accepts(DOC)).isFalse();
+        assertThat(records.get(recordKey())).doesNotContainKey("rev");
+        // Nothing more is written over the outside change
+        snapshots.apply(DOC, 2, List.of(TextOperation.insert(2, "c")));
+        snapshots.flush();
+        runTasks();
+    }
+
+    // =========================
+    // CLOSE / REOPEN
+    // =========================
+    @Test
+    void reopenLoadsOnlyAfterPendingWriteBackLanded() {
+        // Ordered expectations: the reopened room must read what the close wrote
+        expectLoad("v1", 0);
+        expectWrite("v1+", 0, true, 1);
+        expectLoad("v1+", 1);
+        snapshots.open(DOC);
+        runTasks();
+        snapshots.apply(DOC, 1, List.of(TextOperation.insert(2, "+")));
+
+        snapshots.close(DOC);
+        snapshots.open(DOC);
+        runTasks();
+
+        assertThat(leases).containsKey(leaseKey());
+        assertThat(snapshots.accepts(DOC)).isTrue();
+    }
+
+    @Test
+    void closeHandsLeaseBack() {
+        expectLoad("v1", 0);
+        snapshots.open(DOC);
+        runTasks();
+
+        snapshots.close(DOC);
+        runTasks();
+
+        assertThat(leases).doesNotContainKey(leaseKey());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.pollLast()) != null) {
+            task.run();
+        }
+    }
+
+    private void expectLoad(String content, long version) {
+        documentService.expect(requestTo("http://documents/internal/documents/" + DOC))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\":\"" + DOC + "\",\"content\":\"" + content
+                        + "\",\"version\":" + version + "}", MediaType.APPLICATION_JSON));
+    }
+
+    // Accepted unless stale, answering with the version the write produced or the current one
+    private void expectWrite(String content, long expectedVersion, boolean written, long version) {
+        documentService.expect(requestTo("http://documents/internal/documents/snapshots"))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$[0].documentId").value(DOC))
+                .andExpect(jsonPath("$[0].content").value(content))
+                .andExpect(jsonPath("$[0].expectedVersion").value(expectedVersion))
+                .andRespond(withSuccess("[{\"documentId\":\"" + DOC + "\",\"written\":" + written
+                        + ",\"version\":" + version + "}]", MediaType.APPLICATION_JSON));
+    }
+
+    private static String leaseKey() {
+        return "collab-snapshot:{" + DOC + "}:writer";
+    }
+
+    private static String recordKey() {
+        return "collab-snapshot:{" + DOC + "}:revision";
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
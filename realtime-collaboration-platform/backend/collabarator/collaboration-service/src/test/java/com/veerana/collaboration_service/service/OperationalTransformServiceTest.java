@@ -0,0 +1,316 @@
+package com.veerana.collaboration_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.collaboration_service.dto.TextOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.veerana.collaboration_service.service.OperationalTransformService.transform;
+import static com.veerana.collaboration_service.service.OperationalTransformService.transformOne;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class OperationalTransformServiceTest {
+
+    // =========================
+    // INSERT vs INSERT
+    // =========================
+    @Test
+    void insertsAtSamePositionOrderedByTieBreak() {
+        TextOperation a = TextOperation.insert(2, "A");
+        TextOperation b = TextOperation.insert(2, "B");
+
+        assertThat(transformOne(a, b, true)).containsExactly(TextOperation.insert(2, "A"));
+        assertThat(transformOne(b, a, false)).containsExactly(TextOperation.insert(3, "B"));
+        assertConverges("abcd", List.of(a), List.of(b), true, "abABcd");
+        assertConverges("abcd", List.of(a), List.of(b), false, "abBAcd");
+    }
+
+    @Test
+    void insertAfterAnotherInsertShifts() {
+        assertThat(transformOne(TextOperation.insert(5, "x"), TextOperation.insert(1, "yy"), false))
+                .containsExactly(TextOperation.insert(7, "x"));
+        assertThat(transformOne(TextOperation.insert(1, "x"), TextOperation.insert(5, "yy"), false))
+                .containsExactly(TextOperation.insert(1, "x"));
+    }
+
+    // =========================
+    // INSERT vs DELETE
+    // =========================
+    @Test
+    void insertBeforeDeleteShiftsTheDelete() {
+        TextOperation insert = TextOperation.insert(1, "XY");
+        TextOperation delete = TextOperation.delete(3, 2);
+
+        assertThat(transformOne(delete, insert, false)).containsExactly(TextOperation.delete(5, 2));
+        assertThat(transformOne(insert, delete, false)).containsExactly(insert);
+        assertConverges("abcdef", List.of(insert), List.of(delete), false, "aXYbcf");
+    }
+
+    @Test
+    void insertAfterDeleteMovesBack() {
+        TextOperation insert = TextOperation.insert(5, "X");
+        TextOperation delete = TextOperation.delete(1, 2);
+
+        assertThat(transformOne(insert, delete, false)).containsExactly(TextOperation.insert(3, "X"));
+        assertConverges("abcdef", List.of(insert), List.of(delete), false, "adeXf");
+    }
+
+    @Test
+    void insertInsideDeletedRangeIsKept() {
+        TextOperation insert = TextOperation.insert(3, "X");
+        TextOperation delete = TextOperation.delete(1, 4);
+
+        // The insert lands where the range was; the delete is split around it
+        assertThat(transformOne(insert, delete, false)).containsExactly(TextOperation.insert(1, "X"));
+        assertThat(transformOne(delete, insert, false)).containsExactly(
+                TextOperation.delete(1, 2),
+                TextOperation.delete(2, 2));
+        assertConverges("abcdef", List.of(insert), List.of(delete), false, "aXf");
+    }
+
+    @Test
+    void insertAtDeleteStartStaysInFront() {
+        TextOperation insert = TextOperation.insert(1, "X");
+        TextOperation delete = TextOperation.delete(1, 2);
+
+        assertThat(transformOne(delete, insert, false)).containsExactly(TextOperation.delete(2, 2));
+        assertConverges("abcd", List.of(insert), List.of(delete), false, "aXd");
+    }
+
+    // =========================
+    // DELETE vs DELETE
+    // =========================
+    @Test
+    void disjointDeletesShift() {
+        assertThat(transformOne(TextOperation.delete(5, 2), TextOperation.delete(1, 2), false))
+                .containsExactly(TextOperation.delete(3, 2));
+        assertThat(transformOne(TextOperation.delete(1, 2), TextOperation.delete(5, 2), false))
+                .containsExactly(TextOperation.delete(1, 2));
+    }
+
+    @Test
+    void partiallyOverlappingDeletesRemoveTheUnionOnce() {
+        TextOperation a = TextOperation.delete(1, 3);   // bcd
+        TextOperation b = TextOperation.delete(2, 3);   // cde
+
+        assertThat(transformOne(a, b, false)).containsExactly(TextOperation.delete(1, 1));
+        assertThat(transformOne(b, a, false)).containsExactly(TextOperation.delete(1, 1));
+        assertConverges("abcdefg", List.of(a), List.of(b), false, "afg");
+    }
+
+    @Test
+    void containedDeleteDisappears() {
+        TextOperation outer = TextOperation.delete(1, 5);
+        TextOperation inner = TextOperation.delete(2, 2);
+
+        assertThat(transformOne(inner, outer, false)).isEmpty();
+        assertThat(transformOne(outer, inner, false)).containsExactly(TextOperation.delete(1, 3));
+        assertConverges("abcdefg", List.of(outer), List.of(inner), false, "ag");
+    }
+
+    @Test
+    void identicalDeletesCancel() {
+        TextOperation d = TextOperation.delete(2, 3);
+
+        assertThat(transformOne(d, d, false)).isEmpty();
+        assertConverges("abcdefg", List.of(d), List.of(d), true, "abfg");
+    }
+
+    // =========================
+    // SEQUENCES
+    // =========================
+    @Test
+    void emptySideIsUnchanged() {
+        List<TextOperation> ops = List.of(TextOperation.insert(0, "x"));
+
+        OperationalTransformService.Pair pair = transform(ops, List.of(), true);
+
+        assertThat(pair.left()).isEqualTo(ops);
+        assertThat(pair.right()).isEmpty();
+    }
+
+    @Test
+    void randomSequencesConverge() {
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            String base = randomText(random, random.nextInt(12));
+            List<TextOperation> a = randomOps(random, base);
+            List<TextOperation> b = randomOps(random, base);
+            boolean aWins = random.nextBoolean();
+
+            OperationalTransformService.Pair pair = transform(a, b, aWins);
+
+            assertThat(apply(apply(base, b), pair.left()))
+                    .as("base=%s a=%s b=%s aWins=%s", base, a, b, aWins)
+                    .isEqualTo(apply(apply(base, a), pair.right()));
+        }
+    }
+
+    // =========================
+    // SHARED REVISIONS (room split across nodes)
+    // =========================
+    @Test
+    void nodesSharingARoomGetOneRevisionSequence() {
+        FakeRevisionStore redis = new FakeRevisionStore();
+        OperationalTransformService nodeA = service(redis, 500);
+        OperationalTransformService nodeB = service(redis, 500);
+
+        OperationalTransformService.CommittedEdit first = nodeA.apply("doc", 0, List.of(TextOperation.insert(0, "a")));
+        // Based on the same revision, committed through the other node
+        OperationalTransformService.CommittedEdit second = nodeB.apply("doc", 0, List.of(TextOperation.insert(0, "b")));
+
+        assertThat(first.revision()).isEqualTo(1);
+        assertThat(second.revision()).isEqualTo(2);
+        assertThat(second.ops()).containsExactly(TextOperation.insert(1, "b"));
+        assertThat(apply(apply("", first.ops()), second.ops())).isEqualTo("ab");
+        assertThat(nodeA.currentRevision("doc")).isEqualTo(2);
+
+        // Node A rebases a late edit onto B's commit it never saw locally
+        OperationalTransformService.CommittedEdit third = nodeA.apply("doc", 1, List.of(TextOperation.insert(1, "c")));
+        assertThat(third.revision()).isEqualTo(3);
+        // "ac" on the client; the late insert loses the tie against b at the same position
+        assertThat(apply("ab", third.ops())).isEqualTo("abc");
+    }
+
+    @Test
+    void editsInterleavedAcrossNodesStayApplicable() {
+        FakeRevisionStore redis = new FakeRevisionStore();
+        List<OperationalTransformService> nodes = List.of(service(redis, 500), service(redis, 500), service(redis, 500));
+        Random random = new Random(11);
+
+        // Three clients on three nodes, each editing the revision it last caught up to
+        String[] clientText = {"", "", ""};
+        int[] clientRevision = {0, 0, 0};
+        List<List<TextOperation>> committed = new ArrayList<>();
+        String server = "";
+        for (int i = 0; i < 300; i++) {
+            int c = random.nextInt(3);
+            int target = clientRevision[c] + random.nextInt(committed.size() - clientRevision[c] + 1);
+            while (clientRevision[c] < target) {
+                clientText[c] = apply(clientText[c], committed.get(clientRevision[c]++));
+            }
+
+            OperationalTransformService.CommittedEdit edit =
+                    nodes.get(c).apply("doc", clientRevision[c], randomOps(random, clientText[c]));
+
+            assertThat(edit.revision()).isEqualTo(committed.size() + 1);
+            committed.add(edit.ops());
+            // Throws if a rebased op no longer fits the shared document
+            server = apply(server, edit.ops());
+        }
+        assertThat(redis.revision).isEqualTo(300);
+    }
+
+    @Test
+    void baseOlderThanSharedWindowResyncs() {
+        FakeRevisionStore redis = new FakeRevisionStore();
+        OperationalTransformService nodeA = service(redis, 2);
+        OperationalTransformService nodeB = service(redis, 2);
+        for (int i = 0; i < 5; i++) {
+            nodeA.apply("doc", i, List.of(TextOperation.insert(0, "x")));
+        }
+
+        assertThat(nodeB.apply("doc", 1, List.of(TextOperation.insert(0, "y")))).isNull();
+        assertThat(nodeB.apply("doc", 4, List.of(TextOperation.insert(0, "y"))).revision()).isEqualTo(6);
+    }
+
+    // =========================
+    // HELPERS
+    // =========================
+    private static OperationalTransformService service(FakeRevisionStore redis, int historySize) {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        doAnswer(inv -> redis.run(inv.getArgument(0), inv.getRawArguments()))
+                .when(template).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        OperationalTransformService service = new OperationalTransformService(template, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "historySize", historySize);
+        ReflectionTestUtils.setField(service, "ttlMs", 60_000L);
+        return service;
+    }
+
+    // What the SYNC and COMMIT scripts do to collab-ot:{doc}:rev and :log
+    private static class FakeRevisionStore {
+        long revision;
+        final List<String> log = new ArrayList<>();
+
+        synchronized List<Object> run(RedisScript<?> script, Object[] rawArguments) {
+            Object[] args = (Object[]) rawArguments[2];
+            long since = Long.parseLong((String) args[0]);
+            if (script.getScriptAsString().contains("INCR")) {
+                if (since == revision) {
+                    revision++;
+                    log.add((String) args[1]);
+                    int historySize = Integer.parseInt((String) args[2]);
+                    while (log.size() > historySize) log.remove(0);
+                    return List.of(1L, revision);
+                }
+                List<Object> reply = new ArrayList<>(readAfter(since));
+                reply.add(0, 0L);
+                return reply;
+            }
+            return readAfter(since);
+        }
+
+        private List<Object> readAfter(long since) {
+            long oldest = revision - log.size();
+            long from = Math.max(since, oldest);
+            List<Object> reply = new ArrayList<>(List.of(revision));
+            if (from < revision) {
+                reply.addAll(log.subList((int) (from - oldest), log.size()));
+            }
+            return reply;
+        }
+    }
+
+    private static void assertConverges(String base, List<TextOperation> a, List<TextOperation> b,
+                                        boolean aWins, String expected) {
+        OperationalTransformService.Pair pair = transform(a, b, aWins);
+        assertThat(apply(apply(base, b), pair.left())).isEqualTo(expected);
+        assertThat(apply(apply(base, a), pair.right())).isEqualTo(expected);
+    }
+
+    private static String apply(String text, List<TextOperation> ops) {
+        StringBuilder sb = new StringBuilder(text);
+        for (TextOperation op : ops) {
+            if (op.isInsert()) {
+                sb.insert(op.getPosition(), op.getText());
+            } else {
+                sb.delete(op.getPosition(), op.getPosition() + op.getLength());
+            }
+        }
+        return sb.toString();
+    }
+
+    // A valid sequence: each op fits the text as left by the ones before it
+    private static List<TextOperation> randomOps(Random random, String base) {
+        List<TextOperation> ops = new ArrayList<>();
+        String text = base;
+        for (int n = random.nextInt(4); n > 0; n--) {
+            TextOperation op;
+            if (text.isEmpty() || random.nextBoolean()) {
+                op = TextOperation.insert(random.nextInt(text.length() + 1), randomText(random, 1 + random.nextInt(3)));
+            } else {
+                int pos = random.nextInt(text.length());
+                op = TextOperation.delete(pos, 1 + random.nextInt(text.length() - pos));
+            }
+            ops.add(op);
+            text = apply(text, List.of(op));
+        }
+        return ops;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(26)));
+        return sb.toString();
+    }
+}
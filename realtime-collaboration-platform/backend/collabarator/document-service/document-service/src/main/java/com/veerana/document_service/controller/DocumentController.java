@@ -1,13 +1,20 @@
 package com.veerana.document_service.controller;
 
 import com.veerana.document_service.dto.CreateDocumentRequest;
+import com.veerana.document_service.dto.DocumentResponse;
+import com.veerana.document_service.dto.DocumentSort;
+import com.veerana.document_service.dto.PatchDocumentRequest;
 import com.veerana.document_service.dto.ShareRequest;
 import com.veerana.document_service.dto.UpdateDocumentRequest;
 import com.veerana.document_service.service.DocumentService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -24,33 +31,71 @@ public class DocumentController {
         return ResponseEntity.ok(service.create(authentication.getName(), request));
     }
 
+    // Keyset-paged: pass nextCursor from the previous page, with the same sort
     @GetMapping
-    public ResponseEntity<?> myDocs(Authentication authentication) {
-        return ResponseEntity.ok(service.myDocuments(authentication.getName()));
+    public ResponseEntity<?> myDocs(
+            @RequestParam(defaultValue = "UPDATED_DESC") DocumentSort sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(service.myDocuments(authentication.getName(), sort, cursor, limit));
     }
 
+    // If-None-Match is checked against the version alone — 304 skips loading content
     @GetMapping("/{id}")
     public ResponseEntity<?> getById(
             @PathVariable String id,
+            WebRequest webRequest,
             Authentication authentication
     ) {
-        return ResponseEntity.ok(service.getById(id, authentication.getName()));
+        String etag = ETags.of(service.getVersion(id, authentication.getName()));
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return withETag(service.getById(id, authentication.getName()));
     }
 
     // ✅ NEW: get all documents for a team
     // Frontend calls this when user views a team's documents
     @GetMapping("/team/{teamId}")
-    public ResponseEntity<?> getByTeam(@PathVariable String teamId) {
-        return ResponseEntity.ok(service.getByTeam(teamId));
+    public ResponseEntity<?> getByTeam(
+            @PathVariable String teamId,
+            @RequestParam(defaultValue = "UPDATED_DESC") DocumentSort sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(service.getByTeam(teamId, sort, cursor, limit));
     }
 
+    // Conditional on If-Match — 428 without it, 409 with the current revision when stale
     @PutMapping("/{id}")
     public ResponseEntity<?> update(
             @PathVariable String id,
             @RequestBody UpdateDocumentRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            Authentication authentication
+    ) {
+        return withETag(service.update(id, authentication.getName(), request, ETags.requireIfMatch(ifMatch)));
+    }
+
+    // Delta update against a base revision — 409 with the current revision on conflict
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patch(
+            @PathVariable String id,
+            @Valid @RequestBody PatchDocumentRequest request,
             Authentication authentication
     ) {
-        return ResponseEntity.ok(service.update(id, authentication.getName(), request));
+        return withETag(service.patch(id, authentication.getName(), request));
+    }
+
+    @GetMapping("/{id}/revisions/{revision}")
+    public ResponseEntity<?> getRevision(
+            @PathVariable String id,
+            @PathVariable long revision,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(service.getRevision(id, authentication.getName(), revision));
     }
 
     @DeleteMapping("/{id}")
@@ -71,4 +116,8 @@ public class DocumentController {
         service.share(id, authentication.getName(), request);
         return ResponseEntity.ok("Shared successfully");
     }
+
+    private ResponseEntity<DocumentResponse> withETag(DocumentResponse document) {
+        return ResponseEntity.ok().eTag(ETags.of(document.version())).body(document);
+    }
 }
\ No newline at end of file
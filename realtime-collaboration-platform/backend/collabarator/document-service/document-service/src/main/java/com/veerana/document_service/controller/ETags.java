@@ -0,0 +1,45 @@
+package com.veerana.document_service.controller;
+
+import com.veerana.document_service.exception.InvalidRequestException;
+import com.veerana.document_service.exception.PreconditionRequiredException;
+
+// Document ETags are the quoted @Version value, e.g. "7"
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Like {@link #parseIfMatch}, but an absent header is rejected with 428 —
+     * full-content writes must say which version they replace, or "*" to overwrite.
+     */
+    public static Long requireIfMatch(String header) {
+        if (header == null || header.isBlank()) {
+            throw new PreconditionRequiredException("If-Match is required — send the ETag of the version being replaced");
+        }
+        return parseIfMatch(header);
+    }
+
+    /**
+     * Version named by an If-Match header, or null when the header is absent or "*".
+     * Weak tags are accepted, since the version covers the whole representation.
+     */
+    public static Long parseIfMatch(String header) {
+        if (header == null || header.isBlank()) return null;
+        String tag = header.trim();
+        if (tag.equals("*")) return null;
+        if (tag.startsWith("W/")) tag = tag.substring(2);
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new InvalidRequestException("Malformed If-Match header");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Malformed If-Match header");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.veerana.document_service.controller;
+
+import com.veerana.document_service.dto.SnapshotRequest;
+import com.veerana.document_service.exception.AccessDeniedException;
+import com.veerana.document_service.service.DocumentService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+// Service-to-service endpoints — not routed by the gateway, guarded by a shared token
+@RestController
+@RequestMapping("/internal/documents")
+@RequiredArgsConstructor
+public class InternalDocumentController {
+
+    private final DocumentService service;
+
+    @Value("${internal.token:}")
+    private String internalToken;
+
+    // No built-in fallback: a missing secret must stop the service, not open /internal/** to a known value
+    @PostConstruct
+    void requireToken() {
+        if (internalToken.isBlank()) {
+            throw new IllegalStateException("internal.token (INTERNAL_TOKEN) must be set");
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getById(
+            @PathVariable String id,
+            @RequestHeader(value = "X-Internal-Token", required = false) String token
+    ) {
+        verify(token);
+        return ResponseEntity.ok(service.getByIdInternal(id));
+    }
+
+    // Role lookup for collaboration-service handshakes (cached there)
+    @GetMapping("/{id}/access")
+    public ResponseEntity<?> access(
+            @PathVariable String id,
+            @RequestParam String email,
+            @RequestHeader(value = "X-Internal-Token", required = false) String token
+    ) {
+        verify(token);
+        return ResponseEntity.ok(service.getAccessInternal(id, email));
+    }
+
+    // Batched snapshot writes from collaboration-service — one result per document, stale ones not written
+    @PutMapping("/snapshots")
+    public ResponseEntity<?> snapshots(
+            @RequestBody List<SnapshotRequest> snapshots,
+            @RequestHeader(value = "X-Internal-Token", required = false) String token
+    ) {
+        verify(token);
+        return ResponseEntity.ok(service.applySnapshots(snapshots));
+    }
+
+    private void verify(String token) {
+        if (internalToken.isBlank() || token == null || !MessageDigest.isEqual(
+                internalToken.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8))) {
+            throw new AccessDeniedException("Invalid internal token");
+        }
+    }
+}
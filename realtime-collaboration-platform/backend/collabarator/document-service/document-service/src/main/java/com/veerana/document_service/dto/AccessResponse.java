@@ -0,0 +1,10 @@
+package com.veerana.document_service.dto;
+
+import com.veerana.document_service.model.Role;
+
+// Role of one user on one document for collaboration-service; role is null without a permission row
+public record AccessResponse(
+        String documentId,
+        String userEmail,
+        Role role
+) {}
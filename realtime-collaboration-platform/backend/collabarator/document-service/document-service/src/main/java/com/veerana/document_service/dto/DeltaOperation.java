@@ -0,0 +1,14 @@
+package com.veerana.document_service.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+// Same shape as the collaboration-service TextOperation: INSERT text at position, or DELETE length chars
+public record DeltaOperation(
+        @NotNull Type type,
+        @PositiveOrZero int position,
+        String text,
+        @PositiveOrZero int length
+) {
+    public enum Type { INSERT, DELETE }
+}
@@ -0,0 +1,9 @@
+package com.veerana.document_service.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record DocumentPage(
+        List<DocumentSummary> items,
+        String nextCursor
+) {}
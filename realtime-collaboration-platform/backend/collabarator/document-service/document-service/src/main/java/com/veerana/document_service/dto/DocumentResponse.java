@@ -9,5 +9,7 @@ public record DocumentResponse(
         String ownerEmail,
         String teamId,          // ✅ NEW: null if personal document
         LocalDateTime createdAt,
-        LocalDateTime updatedAt
+        LocalDateTime updatedAt,
+        long revision,
+        long version            // also sent as the ETag
 ) {}
\ No newline at end of file
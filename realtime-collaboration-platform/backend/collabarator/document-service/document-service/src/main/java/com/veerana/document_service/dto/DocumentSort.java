@@ -0,0 +1,32 @@
+package com.veerana.document_service.dto;
+
+import java.time.LocalDateTime;
+
+// List orders — each is a keyset on (field, id), so paging never uses OFFSET
+public enum DocumentSort {
+
+    UPDATED_DESC("updatedAt", true),
+    UPDATED_ASC("updatedAt", false),
+    CREATED_DESC("createdAt", true),
+    CREATED_ASC("createdAt", false);
+
+    private final String field;
+    private final boolean descending;
+
+    DocumentSort(String field, boolean descending) {
+        this.field = field;
+        this.descending = descending;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public boolean descending() {
+        return descending;
+    }
+
+    public LocalDateTime keyOf(DocumentSummary summary) {
+        return field.equals("createdAt") ? summary.createdAt() : summary.updatedAt();
+    }
+}
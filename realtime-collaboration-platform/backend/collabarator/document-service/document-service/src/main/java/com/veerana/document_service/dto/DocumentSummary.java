@@ -0,0 +1,20 @@
+package com.veerana.document_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * List entry without the content — built by a JPQL constructor projection from
+ * the stored head length and excerpt columns, so the TEXT column is not read.
+ */
+public record DocumentSummary(
+        String id,
+        String title,
+        String ownerEmail,
+        String teamId,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        int size,               // characters
+        String excerpt,         // first 200 characters
+        long revision,
+        long version
+) {}
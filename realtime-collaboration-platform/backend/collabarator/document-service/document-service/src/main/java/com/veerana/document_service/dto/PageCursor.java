@@ -0,0 +1,38 @@
+package com.veerana.document_service.dto;
+
+import com.veerana.document_service.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position after the last entry of a page: its sort key and id. Opaque to
+ * clients — encoded with the sort it belongs to, so it cannot be replayed
+ * against a different order.
+ */
+public record PageCursor(
+        DocumentSort sort,
+        LocalDateTime key,
+        String id
+) {
+    public String encode() {
+        String raw = sort.name() + '|' + key + '|' + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor, DocumentSort sort) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                throw new InvalidRequestException("Cursor does not match sort " + sort);
+            }
+            return new PageCursor(sort, LocalDateTime.parse(parts[1]), parts[2]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+}
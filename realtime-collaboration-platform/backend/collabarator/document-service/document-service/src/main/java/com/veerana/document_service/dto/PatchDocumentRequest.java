@@ -0,0 +1,12 @@
+package com.veerana.document_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+// Ops applied in order on top of baseRevision, which must be the document's current revision
+public record PatchDocumentRequest(
+        long baseRevision,
+        @NotEmpty List<@Valid DeltaOperation> ops
+) {}
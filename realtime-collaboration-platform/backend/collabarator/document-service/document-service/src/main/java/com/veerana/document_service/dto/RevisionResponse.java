@@ -0,0 +1,7 @@
+package com.veerana.document_service.dto;
+
+public record RevisionResponse(
+        String documentId,
+        long revision,
+        String content
+) {}
@@ -0,0 +1,11 @@
+package com.veerana.document_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+// Full content of one document, folded from the live editing stream by collaboration-service.
+// Written only if the document is still at expectedVersion — the same check as If-Match on PUT.
+public record SnapshotRequest(
+        @NotBlank String documentId,
+        String content,
+        Long expectedVersion
+) {}
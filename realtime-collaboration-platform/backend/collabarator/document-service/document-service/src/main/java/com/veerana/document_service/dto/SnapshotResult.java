@@ -0,0 +1,8 @@
+package com.veerana.document_service.dto;
+
+// Outcome of one snapshot: the version it produced, or the current one when it was stale (null if the document is gone)
+public record SnapshotResult(
+        String documentId,
+        boolean written,
+        Long version
+) {}
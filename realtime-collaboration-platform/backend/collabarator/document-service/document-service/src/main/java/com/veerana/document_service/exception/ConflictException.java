@@ -0,0 +1,21 @@
+package com.veerana.document_service.exception;
+
+public class ConflictException extends RuntimeException {
+
+    private final long currentRevision;
+    private final long currentVersion;
+
+    public ConflictException(String message, long currentRevision, long currentVersion) {
+        super(message);
+        this.currentRevision = currentRevision;
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentRevision() {
+        return currentRevision;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,12 @@
+package com.veerana.document_service.exception;
+
+import java.time.LocalDateTime;
+
+// 409 body: what the client should rebase onto
+public record ConflictResponse(
+        LocalDateTime timestamp,
+        int status,
+        String message,
+        long currentRevision,
+        long currentVersion
+) {}
@@ -1,15 +1,23 @@
 package com.veerana.document_service.exception;
 
+import com.veerana.document_service.controller.ETags;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import com.veerana.document_service.exception.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 
+@Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String PERMISSION_UNIQUE_KEY = "uk_document_permissions_document_user";
+
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<?> handleAccessDenied(AccessDeniedException ex) {
         return ResponseEntity
@@ -31,4 +39,84 @@ public class GlobalExceptionHandler {
                         ex.getMessage()
                 ));
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<?> handleConflict(ConflictException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .eTag(ETags.of(ex.getCurrentVersion()))
+                .body(new ConflictResponse(
+                        LocalDateTime.now(),
+                        409,
+                        ex.getMessage(),
+                        ex.getCurrentRevision(),
+                        ex.getCurrentVersion()
+                ));
+    }
+
+    // Concurrent write that got past the row lock (e.g. a title change racing a content write)
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLock(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse(
+                        LocalDateTime.now(),
+                        409,
+                        "Document was modified concurrently"
+                ));
+    }
+
+    // A second permission for the same user racing a share — any other violation is a bug, not a conflict
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<?> handleIntegrity(DataIntegrityViolationException ex) {
+        if (!PERMISSION_UNIQUE_KEY.equalsIgnoreCase(constraintName(ex))) {
+            log.error("Data integrity violation", ex);
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponse(
+                            LocalDateTime.now(),
+                            500,
+                            "Internal error"
+                    ));
+        }
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse(
+                        LocalDateTime.now(),
+                        409,
+                        "User already has access"
+                ));
+    }
+
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ResponseEntity<?> handlePreconditionRequired(PreconditionRequiredException ex) {
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_REQUIRED)
+                .body(new ErrorResponse(
+                        LocalDateTime.now(),
+                        428,
+                        ex.getMessage()
+                ));
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<?> handleInvalid(InvalidRequestException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse(
+                        LocalDateTime.now(),
+                        400,
+                        ex.getMessage()
+                ));
+    }
+
+    // Name of the violated constraint as Hibernate reported it, or null
+    private static String constraintName(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.veerana.document_service.exception;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
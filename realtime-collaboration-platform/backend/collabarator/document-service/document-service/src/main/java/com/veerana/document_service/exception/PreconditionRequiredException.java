@@ -0,0 +1,7 @@
+package com.veerana.document_service.exception;
+
+public class PreconditionRequiredException extends RuntimeException {
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -2,11 +2,16 @@ package com.veerana.document_service.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "documents")
+@Table(
+        name = "documents",
+        indexes = @Index(name = "idx_documents_team_updated", columnList = "team_id, updated_at, id")
+)
+@DynamicUpdate  // delta writes must not re-send the content column
 @Getter
 @Setter
 @Builder
@@ -20,9 +25,33 @@ public class Document {
 
     private String title;
 
+    // Content as of checkpointRevision — newer revisions are deltas in document_revisions
     @Column(columnDefinition = "TEXT")
     private String content;
 
+    // Head revision, bumped by every content change
+    @Builder.Default
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private long revision = 0L;
+
+    // Revision that content holds
+    @Builder.Default
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private long checkpointRevision = 0L;
+
+    // Length and first characters of the head content, kept current by RevisionService
+    // so list views never read the content column (null until computed)
+    private Integer contentLength;
+
+    @Column(length = 200)
+    private String excerpt;
+
+    // Bumped by Hibernate on every row update — the document's ETag
+    @Version
+    @Builder.Default
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private long version = 0L;
+
     @Column(nullable = false)
     private String ownerEmail;
 
@@ -4,7 +4,14 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "document_permissions")
+@Table(
+        name = "document_permissions",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_document_permissions_document_user",
+                columnNames = {"document_id", "user_email"}
+        ),
+        indexes = @Index(name = "idx_document_permissions_user", columnList = "user_email")
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,52 @@
+package com.veerana.document_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One entry of a document's history: a full CHECKPOINT or a DELTA (JSON ops) on top of the previous revision
+@Entity
+@Table(
+        name = "document_revisions",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_document_revisions_document_revision",
+                columnNames = {"document_id", "revision"}
+        )
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentRevision {
+
+    public enum Kind { CHECKPOINT, DELTA }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(nullable = false)
+    private String documentId;
+
+    @Column(nullable = false)
+    private long revision;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    // CHECKPOINT: full content, DELTA: ops as JSON
+    @Column(columnDefinition = "TEXT")
+    private String data;
+
+    private String authorEmail;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
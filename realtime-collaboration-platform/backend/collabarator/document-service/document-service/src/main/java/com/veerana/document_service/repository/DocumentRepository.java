@@ -1,14 +1,40 @@
 package com.veerana.document_service.repository;
 
 import com.veerana.document_service.model.Document;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface DocumentRepository extends JpaRepository<Document, String> {
+public interface DocumentRepository extends JpaRepository<Document, String>, DocumentSummaryRepository {
 
     List<Document> findByOwnerEmail(String ownerEmail);
 
     // ✅ NEW: fetch all documents belonging to a team
     List<Document> findByTeamId(String teamId);
-}
\ No newline at end of file
+
+    @Query("select d.version from Document d where d.id = :id")
+    Optional<Long> findVersionById(@Param("id") String id);
+
+    // Row lock for content writes, so revisions are appended one at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Document d where d.id = :id")
+    Optional<Document> findByIdForUpdate(@Param("id") String id);
+
+    // Rows whose summary columns are still unset, in id order
+    List<Document> findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc(String afterId);
+
+    // Fills the summary columns only if the head did not move meanwhile — no version bump, no updatedAt change
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Document d set d.contentLength = :contentLength, d.excerpt = :excerpt
+            where d.id = :id and d.revision = :revision
+            """)
+    int updateSummary(@Param("id") String id, @Param("revision") long revision,
+                      @Param("contentLength") int contentLength, @Param("excerpt") String excerpt);
+}
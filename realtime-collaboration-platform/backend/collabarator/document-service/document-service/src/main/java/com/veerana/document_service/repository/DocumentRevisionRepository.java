@@ -0,0 +1,38 @@
+package com.veerana.document_service.repository;
+
+import com.veerana.document_service.model.DocumentRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface DocumentRevisionRepository
+        extends JpaRepository<DocumentRevision, String> {
+
+    // Nearest full checkpoint at or before the requested revision
+    Optional<DocumentRevision> findFirstByDocumentIdAndKindAndRevisionLessThanEqualOrderByRevisionDesc(
+            String documentId,
+            DocumentRevision.Kind kind,
+            long revision
+    );
+
+    // Deltas in (fromExclusive, toInclusive], in the order they were applied
+    @Query("""
+            select r from DocumentRevision r
+            where r.documentId = :documentId
+              and r.kind = com.veerana.document_service.model.DocumentRevision.Kind.DELTA
+              and r.revision > :fromExclusive and r.revision <= :toInclusive
+            order by r.revision
+            """)
+    List<DocumentRevision> findDeltas(
+            @Param("documentId") String documentId,
+            @Param("fromExclusive") long fromExclusive,
+            @Param("toInclusive") long toInclusive
+    );
+
+    @Transactional
+    void deleteByDocumentId(String documentId);
+}
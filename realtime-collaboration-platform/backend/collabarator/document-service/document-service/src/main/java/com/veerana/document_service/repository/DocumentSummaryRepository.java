@@ -0,0 +1,16 @@
+package com.veerana.document_service.repository;
+
+import com.veerana.document_service.dto.DocumentSort;
+import com.veerana.document_service.dto.DocumentSummary;
+import com.veerana.document_service.dto.PageCursor;
+
+import java.util.List;
+
+// Keyset-paged summary queries, built per sort in DocumentSummaryRepositoryImpl
+public interface DocumentSummaryRepository {
+
+    // Documents the user has a permission on — one join, no id list
+    List<DocumentSummary> findSummariesByUserEmail(String email, DocumentSort sort, PageCursor after, int limit);
+
+    List<DocumentSummary> findSummariesByTeamId(String teamId, DocumentSort sort, PageCursor after, int limit);
+}
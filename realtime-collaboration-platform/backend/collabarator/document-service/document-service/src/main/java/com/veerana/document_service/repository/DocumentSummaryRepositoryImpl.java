@@ -0,0 +1,63 @@
+package com.veerana.document_service.repository;
+
+import com.veerana.document_service.dto.DocumentSort;
+import com.veerana.document_service.dto.DocumentSummary;
+import com.veerana.document_service.dto.PageCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+class DocumentSummaryRepositoryImpl implements DocumentSummaryRepository {
+
+    // Length and excerpt are stored columns — the content column is never read
+    private static final String SELECT_SUMMARY = """
+            select new com.veerana.document_service.dto.DocumentSummary(
+                d.id, d.title, d.ownerEmail, d.teamId, d.createdAt, d.updatedAt,
+                coalesce(d.contentLength, 0), coalesce(d.excerpt, ''),
+                d.revision, d.version)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DocumentSummary> findSummariesByUserEmail(String email, DocumentSort sort, PageCursor after, int limit) {
+        String jpql = SELECT_SUMMARY + """
+                from DocumentPermission p join Document d on d.id = p.documentId
+                where p.userEmail = :email
+                """;
+        return page(jpql, sort, after, limit).setParameter("email", email).getResultList();
+    }
+
+    @Override
+    public List<DocumentSummary> findSummariesByTeamId(String teamId, DocumentSort sort, PageCursor after, int limit) {
+        String jpql = SELECT_SUMMARY + """
+                from Document d
+                where d.teamId = :teamId
+                """;
+        return page(jpql, sort, after, limit).setParameter("teamId", teamId).getResultList();
+    }
+
+    // Appends the keyset predicate and order — field names come from DocumentSort, never from the request
+    private TypedQuery<DocumentSummary> page(String jpql, DocumentSort sort, PageCursor after, int limit) {
+        String key = "d." + sort.field();
+        String cmp = sort.descending() ? "<" : ">";
+        String dir = sort.descending() ? "desc" : "asc";
+
+        StringBuilder query = new StringBuilder(jpql);
+        if (after != null) {
+            query.append(" and (").append(key).append(' ').append(cmp).append(" :afterKey")
+                    .append(" or (").append(key).append(" = :afterKey and d.id ").append(cmp).append(" :afterId))");
+        }
+        query.append(" order by ").append(key).append(' ').append(dir).append(", d.id ").append(dir);
+
+        TypedQuery<DocumentSummary> typed = entityManager.createQuery(query.toString(), DocumentSummary.class)
+                .setMaxResults(limit);
+        if (after != null) {
+            typed.setParameter("afterKey", after.key()).setParameter("afterId", after.id());
+        }
+        return typed;
+    }
+}
@@ -1,10 +1,20 @@
 package com.veerana.document_service.service;
 
+import com.veerana.document_service.dto.AccessResponse;
 import com.veerana.document_service.dto.CreateDocumentRequest;
+import com.veerana.document_service.dto.DocumentPage;
 import com.veerana.document_service.dto.DocumentResponse;
+import com.veerana.document_service.dto.DocumentSort;
+import com.veerana.document_service.dto.DocumentSummary;
+import com.veerana.document_service.dto.PageCursor;
+import com.veerana.document_service.dto.PatchDocumentRequest;
+import com.veerana.document_service.dto.RevisionResponse;
 import com.veerana.document_service.dto.ShareRequest;
+import com.veerana.document_service.dto.SnapshotRequest;
+import com.veerana.document_service.dto.SnapshotResult;
 import com.veerana.document_service.dto.UpdateDocumentRequest;
 import com.veerana.document_service.exception.AccessDeniedException;
+import com.veerana.document_service.exception.ConflictException;
 import com.veerana.document_service.exception.ResourceNotFoundException;
 import com.veerana.document_service.model.Document;
 import com.veerana.document_service.model.DocumentPermission;
@@ -12,11 +22,22 @@ import com.veerana.document_service.model.Role;
 import com.veerana.document_service.repository.DocumentPermissionRepository;
 import com.veerana.document_service.repository.DocumentRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
@@ -24,6 +45,14 @@ public class DocumentService {
 
     private final DocumentRepository documentRepository;
     private final DocumentPermissionRepository permissionRepository;
+    private final RevisionService revisionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${documents.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${documents.page.max-size:100}")
+    private int maxPageSize;
 
     // =========================
     // CREATE
@@ -36,8 +65,10 @@ public class DocumentService {
                 .ownerEmail(email)
                 .teamId(request.teamId()) // ✅ NEW: store teamId (nullable)
                 .build();
+        revisionService.summarize(doc, doc.getContent());
 
         documentRepository.save(doc);
+        revisionService.recordInitial(doc, email);
 
         permissionRepository.save(
                 DocumentPermission.builder()
@@ -47,25 +78,30 @@ public class DocumentService {
                         .build()
         );
 
-        return map(doc);
+        return map(doc, doc.getContent());
     }
 
     // =========================
     // LIST MY DOCUMENTS
     // =========================
     @Transactional(readOnly = true)
-    public List<DocumentResponse> myDocuments(String email) {
-        List<DocumentPermission> permissions = permissionRepository.findByUserEmail(email);
-        List<String> documentIds = permissions.stream()
-                .map(DocumentPermission::getDocumentId)
-                .toList();
-        return documentRepository.findAllById(documentIds)
-                .stream().map(this::map).toList();
+    public DocumentPage myDocuments(String email, DocumentSort sort, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor, sort);
+        int size = pageSize(limit);
+        return page(documentRepository.findSummariesByUserEmail(email, sort, after, size + 1), sort, size);
     }
 
     // =========================
     // GET BY ID
     // =========================
+    // Cheap ETag lookup so conditional GETs can answer 304 without loading content
+    @Transactional(readOnly = true)
+    public long getVersion(String documentId, String email) {
+        getPermission(documentId, email);
+        return documentRepository.findVersionById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found"));
+    }
+
     @Transactional(readOnly = true)
     public DocumentResponse getById(String documentId, String email) {
         getPermission(documentId, email);
@@ -80,26 +116,153 @@ public class DocumentService {
     // Caller must verify team membership separately (done in controller).
     // =========================
     @Transactional(readOnly = true)
-    public List<DocumentResponse> getByTeam(String teamId) {
-        return documentRepository.findByTeamId(teamId)
-                .stream().map(this::map).toList();
+    public DocumentPage getByTeam(String teamId, DocumentSort sort, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor, sort);
+        int size = pageSize(limit);
+        return page(documentRepository.findSummariesByTeamId(teamId, sort, after, size + 1), sort, size);
     }
 
     // =========================
     // UPDATE
     // =========================
-    public DocumentResponse update(String documentId, String email, UpdateDocumentRequest request) {
-        DocumentPermission permission = getPermission(documentId, email);
-        if (permission.getRole() == Role.VIEWER) {
-            throw new AccessDeniedException("No edit permission");
+    // Full content from the client, stored as a delta against the head revision
+    // expectedVersion comes from If-Match; null writes unconditionally
+    public DocumentResponse update(String documentId, String email, UpdateDocumentRequest request,
+                                   Long expectedVersion) {
+        requireEditor(documentId, email);
+        Document doc = lockDocument(documentId);
+        // null only for If-Match: * — an explicit unconditional overwrite
+        if (expectedVersion != null && !atVersion(doc, expectedVersion)) {
+            throw new ConflictException("Document has changed since version " + expectedVersion,
+                    doc.getRevision(), doc.getVersion());
+        }
+        String head = revisionService.headContent(doc);
+        String next = revisionService.replace(doc, head, request.getContent(), email);
+        documentRepository.flush();  // new version and updatedAt for the response
+        return map(doc, next != null ? next : head);
+    }
+
+    // =========================
+    // PATCH
+    // Ops against baseRevision — rejected with 409 when someone else wrote first.
+    // =========================
+    public DocumentResponse patch(String documentId, String email, PatchDocumentRequest request) {
+        requireEditor(documentId, email);
+        Document doc = lockDocument(documentId);
+        if (request.baseRevision() != doc.getRevision()) {
+            throw new ConflictException("Document has changed since revision " + request.baseRevision(),
+                    doc.getRevision(), doc.getVersion());
         }
+        String next = revisionService.append(doc, revisionService.headContent(doc), request.ops(), email);
+        documentRepository.flush();
+        return map(doc, next);
+    }
+
+    // =========================
+    // REVISIONS
+    // =========================
+    @Transactional(readOnly = true)
+    public RevisionResponse getRevision(String documentId, String email, long revision) {
+        getPermission(documentId, email);
+        Document doc = documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found"));
+        return new RevisionResponse(documentId, revision, revisionService.contentAt(doc, revision));
+    }
+
+    // =========================
+    // SNAPSHOTS (internal)
+    // Live collaboration state folded by collaboration-service, one batch per flush.
+    // Each snapshot is conditional on its expected version, like a PUT with If-Match,
+    // so a write made outside the room is never silently replaced.
+    // =========================
+    public List<SnapshotResult> applySnapshots(List<SnapshotRequest> snapshots) {
+        Map<String, SnapshotRequest> latest = snapshots.stream()
+                .collect(Collectors.toMap(
+                        SnapshotRequest::documentId,
+                        s -> s,
+                        (a, b) -> b,
+                        LinkedHashMap::new
+                ));
+
+        List<SnapshotResult> results = new ArrayList<>(latest.size());
+        for (SnapshotRequest snapshot : latest.values()) {
+            Document doc = documentRepository.findByIdForUpdate(snapshot.documentId()).orElse(null);
+            if (doc == null) {
+                results.add(new SnapshotResult(snapshot.documentId(), false, null));
+                continue;
+            }
+            if (snapshot.expectedVersion() == null || !atVersion(doc, snapshot.expectedVersion())) {
+                results.add(new SnapshotResult(snapshot.documentId(), false, doc.getVersion()));
+                continue;
+            }
+            String content = snapshot.content() != null ? snapshot.content() : "";
+            revisionService.replace(doc, revisionService.headContent(doc), content, null);
+            documentRepository.flush();  // new version for the result
+            results.add(new SnapshotResult(snapshot.documentId(), true, doc.getVersion()));
+        }
+        return results;
+    }
+
+    // =========================
+    // SUMMARY BACKFILL
+    // Rows from before the summary columns whose head lies beyond the checkpoint —
+    // V3 could only fill the others. A row whose head moved meanwhile was filled by that write.
+    // One transaction per page, so no lock or snapshot is held for the whole table; a page that
+    // fails is retried row by row, and a row that still fails stays unset for the next start.
+    // =========================
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillSummaries() {
+        int filled = 0;
+        String afterId = "";
+        List<Document> batch;
+        while (!(batch = documentRepository.findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc(afterId)).isEmpty()) {
+            filled += fillSummaries(batch);
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+        if (filled > 0) {
+            log.info("Filled summary columns of {} documents", filled);
+        }
+    }
+
+    private int fillSummaries(List<Document> batch) {
+        try {
+            return transactionTemplate.execute(status -> fillSummariesInTransaction(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("Could not fill summary columns of document {}", batch.get(0).getId(), e);
+                return 0;
+            }
+            log.warn("Summary backfill of {} documents failed — retrying them one by one", batch.size(), e);
+            return batch.stream().mapToInt(doc -> fillSummaries(List.of(doc))).sum();
+        }
+    }
+
+    private int fillSummariesInTransaction(List<Document> batch) {
+        int filled = 0;
+        for (Document doc : batch) {
+            String head = revisionService.headContent(doc);
+            filled += documentRepository.updateSummary(doc.getId(), doc.getRevision(),
+                    RevisionService.contentLength(head), RevisionService.excerpt(head));
+        }
+        return filled;
+    }
+
+    @Transactional(readOnly = true)
+    public DocumentResponse getByIdInternal(String documentId) {
         Document doc = documentRepository.findById(documentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found"));
-        doc.setContent(request.getContent());
-        documentRepository.save(doc);
         return map(doc);
     }
 
+    @Transactional(readOnly = true)
+    public AccessResponse getAccessInternal(String documentId, String email) {
+        Role role = permissionRepository.findByDocumentIdAndUserEmail(documentId, email)
+                .map(DocumentPermission::getRole)
+                .orElse(null);
+        return new AccessResponse(documentId, email, role);
+    }
+
     // =========================
     // DELETE
     // =========================
@@ -109,6 +272,7 @@ public class DocumentService {
             throw new AccessDeniedException("Only owner can delete document");
         }
         permissionRepository.deleteByDocumentId(documentId);
+        revisionService.deleteHistory(documentId);
         documentRepository.deleteById(documentId);
     }
 
@@ -140,15 +304,50 @@ public class DocumentService {
                 .orElseThrow(() -> new AccessDeniedException("Access denied"));
     }
 
+    private int pageSize(Integer limit) {
+        if (limit == null) return defaultPageSize;
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    // rows holds one entry more than the page when there is a next page
+    private DocumentPage page(List<DocumentSummary> rows, DocumentSort sort, int size) {
+        if (rows.size() <= size) return new DocumentPage(rows, null);
+        List<DocumentSummary> items = rows.subList(0, size);
+        DocumentSummary last = items.get(size - 1);
+        return new DocumentPage(items, new PageCursor(sort, sort.keyOf(last), last.id()).encode());
+    }
+
+    private void requireEditor(String documentId, String email) {
+        DocumentPermission permission = getPermission(documentId, email);
+        if (permission.getRole() == Role.VIEWER) {
+            throw new AccessDeniedException("No edit permission");
+        }
+    }
+
+    private static boolean atVersion(Document doc, long expectedVersion) {
+        return doc.getVersion() == expectedVersion;
+    }
+
+    private Document lockDocument(String documentId) {
+        return documentRepository.findByIdForUpdate(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found"));
+    }
+
     private DocumentResponse map(Document doc) {
+        return map(doc, revisionService.headContent(doc));
+    }
+
+    private DocumentResponse map(Document doc, String content) {
         return new DocumentResponse(
                 doc.getId(),
                 doc.getTitle(),
-                doc.getContent(),
+                content,
                 doc.getOwnerEmail(),
                 doc.getTeamId(),        // ✅ NEW
                 doc.getCreatedAt(),
-                doc.getUpdatedAt()
+                doc.getUpdatedAt(),
+                doc.getRevision(),
+                doc.getVersion()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+package com.veerana.document_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.veerana.document_service.dto.DeltaOperation;
+import com.veerana.document_service.exception.InvalidRequestException;
+import com.veerana.document_service.exception.ResourceNotFoundException;
+import com.veerana.document_service.model.Document;
+import com.veerana.document_service.model.DocumentRevision;
+import com.veerana.document_service.repository.DocumentRevisionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content history of documents.
+ *
+ * documents.content holds the text as of checkpointRevision. Every later
+ * change is a DELTA row in document_revisions, so a small edit writes a few
+ * bytes instead of the whole TEXT column. Once checkpoint-interval deltas have
+ * piled up, the next change rewrites documents.content and stores a CHECKPOINT
+ * row, which also bounds how many deltas a read has to replay.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class RevisionService {
+
+    private static final TypeReference<List<DeltaOperation>> OPS = new TypeReference<>() {};
+
+    // Characters of head content kept on the documents row for list views
+    public static final int EXCERPT_LENGTH = 200;
+
+    private final DocumentRevisionRepository revisionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${documents.revisions.checkpoint-interval:50}")
+    private int checkpointInterval;
+
+    // =========================
+    // WRITES (caller holds the document row lock)
+    // =========================
+
+    // Head length and excerpt for list views — set before the row is first saved, then on every change
+    public void summarize(Document doc, String headContent) {
+        doc.setContentLength(contentLength(headContent));
+        doc.setExcerpt(excerpt(headContent));
+    }
+
+    // Code points, like the database's length()/substring()
+    static int contentLength(String content) {
+        return content != null ? content.codePointCount(0, content.length()) : 0;
+    }
+
+    static String excerpt(String content) {
+        if (content == null) return "";
+        int length = Math.min(contentLength(content), EXCERPT_LENGTH);
+        return content.substring(0, content.offsetByCodePoints(0, length));
+    }
+
+    // First revision of a new document
+    public void recordInitial(Document doc, String authorEmail) {
+        revisionRepository.save(checkpoint(doc.getId(), doc.getRevision(), doc.getContent(), authorEmail));
+    }
+
+    /**
+     * Applies ops on top of the head content and appends the next revision.
+     * Returns the new head content.
+     */
+    public String append(Document doc, String headContent, List<DeltaOperation> ops, String authorEmail) {
+        String next = apply(headContent, ops);
+        long revision = doc.getRevision() + 1;
+
+        if (revision - doc.getCheckpointRevision() >= checkpointInterval) {
+            revisionRepository.save(checkpoint(doc.getId(), revision, next, authorEmail));
+            doc.setContent(next);
+            doc.setCheckpointRevision(revision);
+        } else {
+            revisionRepository.save(DocumentRevision.builder()
+                    .documentId(doc.getId())
+                    .revision(revision)
+                    .kind(DocumentRevision.Kind.DELTA)
+                    .data(writeOps(ops))
+                    .authorEmail(authorEmail)
+                    .build());
+        }
+        doc.setRevision(revision);
+        summarize(doc, next);
+        return next;
+    }
+
+    /**
+     * Full-content write (PUT, collaboration snapshots) stored as a delta:
+     * the changed middle between the common prefix and suffix.
+     * Returns null when the content did not change.
+     */
+    public String replace(Document doc, String headContent, String content, String authorEmail) {
+        List<DeltaOperation> ops = diff(headContent, content);
+        if (ops.isEmpty()) return null;
+        return append(doc, headContent, ops, authorEmail);
+    }
+
+    public void deleteHistory(String documentId) {
+        revisionRepository.deleteByDocumentId(documentId);
+    }
+
+    // =========================
+    // READS
+    // =========================
+    @Transactional(readOnly = true)
+    public String headContent(Document doc) {
+        if (doc.getRevision() == doc.getCheckpointRevision()) return doc.getContent();
+        return replay(doc.getContent(),
+                revisionRepository.findDeltas(doc.getId(), doc.getCheckpointRevision(), doc.getRevision()));
+    }
+
+    @Transactional(readOnly = true)
+    public String contentAt(Document doc, long revision) {
+        if (revision < 0 || revision > doc.getRevision()) {
+            throw new ResourceNotFoundException("Revision not found");
+        }
+        if (revision >= doc.getCheckpointRevision()) {
+            return replay(doc.getContent(),
+                    revisionRepository.findDeltas(doc.getId(), doc.getCheckpointRevision(), revision));
+        }
+
+        // Revisions from before the history was kept have no checkpoint to start from
+        DocumentRevision base = revisionRepository
+                .findFirstByDocumentIdAndKindAndRevisionLessThanEqualOrderByRevisionDesc(
+                        doc.getId(), DocumentRevision.Kind.CHECKPOINT, revision)
+                .orElseThrow(() -> new ResourceNotFoundException("Revision not available"));
+        return replay(base.getData(),
+                revisionRepository.findDeltas(doc.getId(), base.getRevision(), revision));
+    }
+
+    // =========================
+    // HELPERS
+    // =========================
+    private String replay(String base, List<DocumentRevision> deltas) {
+        String content = base != null ? base : "";
+        for (DocumentRevision delta : deltas) {
+            content = apply(content, readOps(delta.getData()));
+        }
+        return content;
+    }
+
+    static String apply(String content, List<DeltaOperation> ops) {
+        StringBuilder text = new StringBuilder(content != null ? content : "");
+        for (DeltaOperation op : ops) {
+            if (op.type() == DeltaOperation.Type.INSERT) {
+                if (op.text() == null || op.position() < 0 || op.position() > text.length()) {
+                    throw new InvalidRequestException("Invalid insert at " + op.position());
+                }
+                text.insert(op.position(), op.text());
+            } else {
+                int end = op.position() + op.length();
+                if (op.position() < 0 || op.length() < 0 || end > text.length()) {
+                    throw new InvalidRequestException("Invalid delete at " + op.position());
+                }
+                text.delete(op.position(), end);
+            }
+        }
+        return text.toString();
+    }
+
+    static List<DeltaOperation> diff(String before, String after) {
+        String a = before != null ? before : "";
+        String b = after != null ? after : "";
+
+        int prefix = 0;
+        int max = Math.min(a.length(), b.length());
+        while (prefix < max && a.charAt(prefix) == b.charAt(prefix)) prefix++;
+
+        int suffix = 0;
+        while (suffix < max - prefix
+                && a.charAt(a.length() - 1 - suffix) == b.charAt(b.length() - 1 - suffix)) suffix++;
+
+        List<DeltaOperation> ops = new ArrayList<>(2);
+        int removed = a.length() - prefix - suffix;
+        if (removed > 0) {
+            ops.add(new DeltaOperation(DeltaOperation.Type.DELETE, prefix, null, removed));
+        }
+        if (b.length() - prefix - suffix > 0) {
+            ops.add(new DeltaOperation(DeltaOperation.Type.INSERT, prefix,
+                    b.substring(prefix, b.length() - suffix), 0));
+        }
+        return ops;
+    }
+
+    private DocumentRevision checkpoint(String documentId, long revision, String content, String authorEmail) {
+        return DocumentRevision.builder()
+                .documentId(documentId)
+                .revision(revision)
+                .kind(DocumentRevision.Kind.CHECKPOINT)
+                .data(content)
+                .authorEmail(authorEmail)
+                .build();
+    }
+
+    private String writeOps(List<DeltaOperation> ops) {
+        try {
+            return objectMapper.writeValueAsString(ops);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize delta", e);
+        }
+    }
+
+    private List<DeltaOperation> readOps(String data) {
+        try {
+            return objectMapper.readValue(data, OPS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt delta in revision history", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+-- Schema as previously maintained by hibernate ddl-auto=update.
+-- Idempotent, so it also applies on databases created before migrations (baselined at 0).
+
+create table if not exists documents (
+    id                  varchar(255) not null primary key,
+    title               varchar(255),
+    content             text,
+    revision            bigint       not null default 0,
+    checkpoint_revision bigint       not null default 0,
+    version             bigint       not null default 0,
+    owner_email         varchar(255) not null,
+    team_id             varchar(255),
+    created_at          timestamp(6),
+    updated_at          timestamp(6)
+);
+
+-- Columns added to the entity after the table first appeared
+alter table documents add column if not exists revision bigint not null default 0;
+alter table documents add column if not exists checkpoint_revision bigint not null default 0;
+alter table documents add column if not exists version bigint not null default 0;
+
+create index if not exists idx_documents_team_updated on documents (team_id, updated_at, id);
+
+create table if not exists document_permissions (
+    id          varchar(255) not null primary key,
+    document_id varchar(255),
+    user_email  varchar(255),
+    role        varchar(255) check (role in ('OWNER', 'EDITOR', 'VIEWER'))
+);
+
+create table if not exists document_revisions (
+    id           varchar(255) not null primary key,
+    document_id  varchar(255) not null,
+    revision     bigint       not null,
+    kind         varchar(255) not null check (kind in ('CHECKPOINT', 'DELTA')),
+    data         text,
+    author_email varchar(255),
+    created_at   timestamp(6),
+    constraint uk_document_revisions_document_revision unique (document_id, revision)
+);
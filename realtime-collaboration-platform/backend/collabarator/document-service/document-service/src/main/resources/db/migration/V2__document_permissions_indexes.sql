@@ -0,0 +1,43 @@
+-- Hot lookups on document_permissions:
+--   findByDocumentIdAndUserEmail (every document request) -> unique (document_id, user_email)
+--   findByUserEmail / the "my documents" join              -> (user_email)
+-- Built CONCURRENTLY so writes keep flowing on large tables, hence no transaction
+-- (see the .conf next to this file). A failed build leaves an INVALID index behind,
+-- which "if not exists" would accept as done, so a rerun drops those first.
+
+-- A user holds one permission per document: keep the strongest role of any duplicates
+delete from document_permissions
+where id in (
+    select id from (
+        select id,
+               row_number() over (
+                   partition by document_id, user_email
+                   order by case role when 'OWNER' then 0 when 'EDITOR' then 1 else 2 end, id
+               ) as rn
+        from document_permissions
+    ) ranked
+    where rn > 1
+);
+
+do $$
+declare
+    stale record;
+begin
+    for stale in
+        select c.relname
+        from pg_index i
+        join pg_class c on c.oid = i.indexrelid
+        join pg_namespace n on n.oid = c.relnamespace
+        where not i.indisvalid
+          and n.nspname = current_schema()
+          and c.relname in ('uk_document_permissions_document_user', 'idx_document_permissions_user')
+    loop
+        execute format('drop index %I', stale.relname);
+    end loop;
+end $$;
+
+create unique index concurrently if not exists uk_document_permissions_document_user
+    on document_permissions (document_id, user_email);
+
+create index concurrently if not exists idx_document_permissions_user
+    on document_permissions (user_email);
@@ -0,0 +1,12 @@
+-- Head content length and excerpt for list views, maintained by RevisionService on every
+-- content write, so the summary queries never read the content column.
+alter table documents add column if not exists content_length integer;
+alter table documents add column if not exists excerpt varchar(200);
+
+-- Where the head is the stored checkpoint it can be filled here. Rows with deltas past the
+-- checkpoint stay null and are filled from the replayed head when the service starts.
+update documents
+set content_length = coalesce(length(content), 0),
+    excerpt        = coalesce(substring(content from 1 for 200), '')
+where content_length is null
+  and revision = checkpoint_revision;
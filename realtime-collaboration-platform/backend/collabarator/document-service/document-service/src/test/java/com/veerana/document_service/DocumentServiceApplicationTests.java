@@ -3,7 +3,7 @@ package com.veerana.document_service;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "INTERNAL_TOKEN=test-internal-token")
 class DocumentServiceApplicationTests {
 
 	@Test
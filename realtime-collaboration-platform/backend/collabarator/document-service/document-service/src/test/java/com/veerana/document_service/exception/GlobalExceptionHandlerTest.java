@@ -0,0 +1,34 @@
+package com.veerana.document_service.exception;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void duplicatePermissionIsConflict() {
+        var response = handler.handleIntegrity(violation("uk_document_permissions_document_user"));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(409);
+    }
+
+    @Test
+    void otherViolationsAreNotReportedAsConflicts() {
+        assertThat(handler.handleIntegrity(violation("fk_document_revisions_document")).getStatusCode().value())
+                .isEqualTo(500);
+        assertThat(handler.handleIntegrity(new DataIntegrityViolationException("not null")).getStatusCode().value())
+                .isEqualTo(500);
+    }
+
+    private static DataIntegrityViolationException violation(String constraint) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException("23505"), constraint));
+    }
+}
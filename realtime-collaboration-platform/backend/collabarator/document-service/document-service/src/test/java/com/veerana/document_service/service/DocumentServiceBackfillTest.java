@@ -0,0 +1,78 @@
+package com.veerana.document_service.service;
+
+import com.veerana.document_service.model.Document;
+import com.veerana.document_service.repository.DocumentPermissionRepository;
+import com.veerana.document_service.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentServiceBackfillTest {
+
+    private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+    private final RevisionService revisionService = mock(RevisionService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private DocumentService documentService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        documentService = new DocumentService(documentRepository, mock(DocumentPermissionRepository.class),
+                revisionService, new TransactionTemplate(transactionManager));
+        when(documentRepository.updateSummary(anyString(), anyLong(), anyInt(), anyString())).thenReturn(1);
+        when(revisionService.headContent(any())).thenReturn("content");
+    }
+
+    @Test
+    void eachPageIsFilledInItsOwnTransaction() {
+        when(documentRepository.findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc(""))
+                .thenReturn(List.of(doc("a"), doc("b")));
+        when(documentRepository.findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc("b"))
+                .thenReturn(List.of(doc("c")));
+        when(documentRepository.findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc("c"))
+                .thenReturn(List.of());
+
+        documentService.backfillSummaries();
+
+        verify(transactionManager, times(2)).commit(any());
+        verify(documentRepository, times(3)).updateSummary(anyString(), anyLong(), anyInt(), anyString());
+    }
+
+    @Test
+    void badRowOnlyLosesItself() {
+        Document bad = doc("b");
+        when(documentRepository.findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc(""))
+                .thenReturn(List.of(doc("a"), bad, doc("c")));
+        when(documentRepository.findTop100ByContentLengthIsNullAndIdGreaterThanOrderByIdAsc("c"))
+                .thenReturn(List.of());
+        when(revisionService.headContent(bad)).thenThrow(new IllegalStateException("broken delta chain"));
+
+        documentService.backfillSummaries();
+
+        // The page and then the bad row alone roll back; the other rows are committed one by one
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(documentRepository, never()).updateSummary(eq("b"), anyLong(), anyInt(), anyString());
+    }
+
+    private static Document doc(String id) {
+        Document doc = new Document();
+        doc.setId(id);
+        return doc;
+    }
+}
@@ -0,0 +1,41 @@
+package com.veerana.document_service.service;
+
+import com.veerana.document_service.model.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevisionServiceTest {
+
+    private final RevisionService revisionService = new RevisionService(null, null);
+
+    @Test
+    void summaryOfShortContentIsAllOfIt() {
+        Document doc = new Document();
+        revisionService.summarize(doc, "hello");
+
+        assertThat(doc.getContentLength()).isEqualTo(5);
+        assertThat(doc.getExcerpt()).isEqualTo("hello");
+    }
+
+    @Test
+    void excerptStopsAtLimitWithoutSplittingSurrogatePairs() {
+        // 199 letters, then a character outside the BMP across the 200th position
+        String content = "a".repeat(199) + "😀" + "tail";
+        Document doc = new Document();
+        revisionService.summarize(doc, content);
+
+        // Counted like the database does: one per code point
+        assertThat(doc.getContentLength()).isEqualTo(204);
+        assertThat(doc.getExcerpt()).isEqualTo("a".repeat(199) + "😀");
+    }
+
+    @Test
+    void missingContentSummarizesAsEmpty() {
+        Document doc = new Document();
+        revisionService.summarize(doc, null);
+
+        assertThat(doc.getContentLength()).isZero();
+        assertThat(doc.getExcerpt()).isEmpty();
+    }
+}
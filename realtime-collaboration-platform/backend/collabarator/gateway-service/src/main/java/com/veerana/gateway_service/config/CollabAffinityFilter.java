@@ -0,0 +1,63 @@
+package com.veerana.gateway_service.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Routes /ws/collab/{documentId} to the node that owns the document on the
+ * collaboration hash ring, so a room's sessions share one node and most
+ * broadcasts never leave it. Falls back to the route's configured URI when
+ * the ring is not configured or has no healthy node.
+ */
+@Component
+@RequiredArgsConstructor
+public class CollabAffinityFilter implements GlobalFilter, Ordered {
+
+    private static final String PATH_PREFIX = "/ws/collab/";
+
+    private final CollabHashRing ring;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!ring.isEnabled()) return chain.filter(exchange);
+
+        String path = exchange.getRequest().getURI().getRawPath();
+        if (!path.startsWith(PATH_PREFIX)) return chain.filter(exchange);
+
+        String documentId = path.substring(PATH_PREFIX.length());
+        int slash = documentId.indexOf('/');
+        if (slash >= 0) documentId = documentId.substring(0, slash);
+        if (documentId.isEmpty()) return chain.filter(exchange);
+
+        URI node = ring.nodeFor(documentId);
+        URI target = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (node == null || target == null) return chain.filter(exchange);
+
+        // Keep path and query, swap only the destination node
+        URI routed = UriComponentsBuilder.fromUri(target)
+                .scheme(node.getScheme())
+                .host(node.getHost())
+                .port(node.getPort())
+                .build(true)
+                .toUri();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, routed);
+
+        return chain.filter(exchange);
+    }
+
+    // After the route URI is resolved, before the websocket/netty routing filters
+    @Override
+    public int getOrder() {
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1;
+    }
+}
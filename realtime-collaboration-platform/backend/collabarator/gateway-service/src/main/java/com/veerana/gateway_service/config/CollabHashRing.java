@@ -0,0 +1,161 @@
+package com.veerana.gateway_service.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consistent-hash ring of collaboration-service nodes, keyed by documentId,
+ * so every session of a document lands on the same node.
+ *
+ * Membership comes from the static collab.ring.nodes list; nodes whose
+ * health endpoint (collab.ring.health-port/-path) stops answering 2xx leave the ring and rejoin once it does
+ * again. Only the documents owned by the node that changed move. The
+ * collaboration nodes run the same ring and send RECONNECT to the sessions of
+ * rooms that moved away from them, so those rooms consolidate on the new owner.
+ */
+@Slf4j
+@Component
+public class CollabHashRing {
+
+    @Value("${collab.ring.nodes:}")
+    private String configuredNodes;
+
+    @Value("${collab.ring.virtual-nodes:128}")
+    private int virtualNodes;
+
+    @Value("${collab.ring.probe-interval-ms:5000}")
+    private long probeIntervalMs;
+
+    @Value("${collab.ring.health-path:/actuator/health}")
+    private String healthPath;
+
+    // Management port the nodes serve health on; 0 probes the node URL's own port
+    @Value("${collab.ring.health-port:0}")
+    private int healthPort;
+
+    private final WebClient webClient = WebClient.create();
+
+    private List<URI> nodes = List.of();
+    private final Set<URI> healthy = ConcurrentHashMap.newKeySet();
+
+    // Immutable snapshot, swapped whenever membership changes
+    private volatile NavigableMap<Long, URI> ring = new TreeMap<>();
+
+    private Disposable probes;
+
+    @PostConstruct
+    void init() {
+        nodes = Arrays.stream(configuredNodes.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(URI::create)
+                .toList();
+        if (nodes.isEmpty()) return;
+
+        // Start optimistic; the first probe round removes nodes that are down
+        healthy.addAll(nodes);
+        rebuild();
+
+        probes = Flux.interval(Duration.ofMillis(probeIntervalMs))
+                .flatMap(tick -> Flux.fromIterable(nodes).flatMap(this::probe))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (probes != null) probes.dispose();
+    }
+
+    public boolean isEnabled() {
+        return !nodes.isEmpty();
+    }
+
+    // Owner of the document, or null when no node is healthy
+    public URI nodeFor(String documentId) {
+        return owner(ring, documentId);
+    }
+
+    // Up only while the health endpoint answers 2xx: a draining or broken node (503) leaves the ring too
+    private Mono<Void> probe(URI node) {
+        return webClient.get()
+                .uri(healthUri(node, healthPort, healthPath))
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(response.statusCode().is2xxSuccessful()))
+                .timeout(Duration.ofMillis(Math.max(500, probeIntervalMs / 2)))
+                .onErrorReturn(false)
+                .doOnNext(up -> markHealthy(node, up))
+                .then();
+    }
+
+    private void markHealthy(URI node, boolean up) {
+        boolean changed = up ? healthy.add(node) : healthy.remove(node);
+        if (changed) {
+            log.info("Collaboration node {} {} the ring", node, up ? "joined" : "left");
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        ring = build(nodes.stream().filter(healthy::contains).toList(), virtualNodes);
+    }
+
+    static URI healthUri(URI node, int healthPort, String healthPath) {
+        return UriComponentsBuilder.fromUri(node)
+                .port(healthPort > 0 ? healthPort : node.getPort())
+                .replacePath(healthPath)
+                .build()
+                .toUri();
+    }
+
+    // The ring is a pure function of the member list — every gateway and collaboration node agrees on it
+    static NavigableMap<Long, URI> build(Collection<URI> members, int virtualNodes) {
+        NavigableMap<Long, URI> next = new TreeMap<>();
+        for (URI node : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                next.put(hash(node + "#" + i), node);
+            }
+        }
+        return next;
+    }
+
+    static URI owner(NavigableMap<Long, URI> ring, String documentId) {
+        if (ring.isEmpty()) return null;
+        Map.Entry<Long, URI> entry = ring.ceilingEntry(hash(documentId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.veerana.gateway_service.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CollabHashRingTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int KEYS = 20_000;
+
+    private static final URI A = URI.create("http://collab-1:8085");
+    private static final URI B = URI.create("http://collab-2:8085");
+    private static final URI C = URI.create("http://collab-3:8085");
+    private static final URI D = URI.create("http://collab-4:8085");
+
+    private final List<String> documentIds = IntStream.range(0, KEYS)
+            .mapToObj(i -> new UUID(i * 31L, i).toString())
+            .toList();
+
+    // =========================
+    // PLACEMENT
+    // =========================
+    @Test
+    void placementIsStableAcrossRebuildsAndMemberOrder() {
+        Map<String, URI> first = placement(CollabHashRing.build(List.of(A, B, C), VIRTUAL_NODES));
+        Map<String, URI> again = placement(CollabHashRing.build(List.of(C, A, B), VIRTUAL_NODES));
+
+        assertThat(again).isEqualTo(first);
+    }
+
+    @Test
+    void keysSpreadOverAllNodes() {
+        Map<String, URI> placement = placement(CollabHashRing.build(List.of(A, B, C), VIRTUAL_NODES));
+
+        for (URI node : List.of(A, B, C)) {
+            long owned = placement.values().stream().filter(node::equals).count();
+            // 1/3 each, within ±25%
+            assertThat(owned).isBetween((long) (KEYS / 3 * 0.75), (long) (KEYS / 3 * 1.25));
+        }
+    }
+
+    @Test
+    void emptyRingHasNoOwner() {
+        assertThat(CollabHashRing.owner(CollabHashRing.build(List.of(), VIRTUAL_NODES), "doc")).isNull();
+    }
+
+    // =========================
+    // MEMBERSHIP CHANGES
+    // =========================
+    @Test
+    void addingNodeMovesOnlyItsShareAndOnlyToIt() {
+        Map<String, URI> before = placement(CollabHashRing.build(List.of(A, B, C), VIRTUAL_NODES));
+        Map<String, URI> after = placement(CollabHashRing.build(List.of(A, B, C, D), VIRTUAL_NODES));
+
+        List<String> moved = moved(before, after);
+        assertThat(moved).allSatisfy(id -> assertThat(after.get(id)).isEqualTo(D));
+        // Ideal is 1/4 of the keys
+        assertThat(moved.size()).isBetween((int) (KEYS / 4 * 0.75), (int) (KEYS / 4 * 1.25));
+    }
+
+    @Test
+    void removingNodeMovesOnlyTheKeysItOwned() {
+        Map<String, URI> before = placement(CollabHashRing.build(List.of(A, B, C, D), VIRTUAL_NODES));
+        Map<String, URI> after = placement(CollabHashRing.build(List.of(A, B, C), VIRTUAL_NODES));
+
+        List<String> moved = moved(before, after);
+        assertThat(moved).allSatisfy(id -> assertThat(before.get(id)).isEqualTo(D));
+        assertThat(moved).hasSize((int) before.values().stream().filter(D::equals).count());
+    }
+
+    // =========================
+    // HEALTH PROBE
+    // =========================
+    @Test
+    void healthIsProbedOnManagementPortWhenSet() {
+        assertThat(CollabHashRing.healthUri(A, 9085, "/actuator/health"))
+                .isEqualTo(URI.create("http://collab-1:9085/actuator/health"));
+        assertThat(CollabHashRing.healthUri(A, 0, "/actuator/health"))
+                .isEqualTo(URI.create("http://collab-1:8085/actuator/health"));
+    }
+
+    private Map<String, URI> placement(NavigableMap<Long, URI> ring) {
+        Map<String, URI> placement = new HashMap<>();
+        for (String id : documentIds) {
+            placement.put(id, CollabHashRing.owner(ring, id));
+        }
+        return placement;
+    }
+
+    private static List<String> moved(Map<String, URI> before, Map<String, URI> after) {
+        List<String> moved = new ArrayList<>();
+        before.forEach((id, node) -> {
+            if (!node.equals(after.get(id))) moved.add(id);
+        });
+        return moved;
+    }
+}
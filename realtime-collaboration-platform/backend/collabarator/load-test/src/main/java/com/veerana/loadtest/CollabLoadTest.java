@@ -0,0 +1,106 @@
+package com.veerana.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for the collaboration WebSocket path.
+ *
+ * Opens --sessions editors spread over --documents rooms, drives EDIT and CURSOR traffic
+ * at the configured per-session rates and reports end-to-end delivery latency and throughput.
+ *
+ * Against a running service:
+ *   java -jar load-test.jar --url=ws://localhost:8085 --sessions=500 --documents=50
+ *
+ * Self-contained (no containers), e.g. before a release:
+ *   java -jar load-test.jar --redis-server=/usr/bin/redis-server \
+ *        --service-jar=../collaboration-service/target/collaboration-service-0.0.1-SNAPSHOT.jar
+ */
+public class CollabLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        try (LocalStack stack = new LocalStack()) {
+            if (config.redisServer() != null) {
+                stack.startRedis(config.redisServer(), config.redisPort());
+            }
+            if (config.serviceJar() != null) {
+                stack.startService(config.serviceJar(), config.servicePort(), config.redisPort());
+            }
+            run(config);
+        }
+    }
+
+    private static void run(LoadTestConfig config) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        HttpClient client = HttpClient.newHttpClient();
+        Stats stats = new Stats();
+
+        // =========================
+        // RAMP UP
+        // =========================
+        List<SimulatedEditor> editors = new ArrayList<>(config.sessions());
+        List<CompletableFuture<?>> handshakes = new ArrayList<>(config.sessions());
+        long pauseNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, config.connectRatePerSecond());
+
+        for (int i = 0; i < config.sessions(); i++) {
+            String documentId = "load-doc-" + (i % config.documents());
+            SimulatedEditor editor = new SimulatedEditor(mapper, "load-" + i + "@loadtest.local", documentId, stats);
+            editors.add(editor);
+            handshakes.add(editor.connect(client, config.url()));
+            TimeUnit.NANOSECONDS.sleep(pauseNanos);
+        }
+        CompletableFuture.allOf(handshakes.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        System.out.printf("%d sessions connected across %d documents%n", config.sessions(), config.documents());
+
+        // =========================
+        // TRAFFIC
+        // =========================
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        for (SimulatedEditor editor : editors) {
+            schedule(scheduler, editor::sendEdit, config.editRate());
+            schedule(scheduler, editor::sendCursor, config.cursorRate());
+        }
+
+        TimeUnit.SECONDS.sleep(config.warmupSeconds());
+        stats.startRecording();
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(config.durationSeconds());
+        stats.stopRecording();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        scheduler.shutdownNow();
+        editors.forEach(SimulatedEditor::close);
+
+        // =========================
+        // REPORT
+        // =========================
+        System.out.printf("%nsessions=%d documents=%d edit-rate=%.1f/s cursor-rate=%.1f/s window=%.1fs%n",
+                config.sessions(), config.documents(), config.editRate(), config.cursorRate(), seconds);
+        System.out.printf("sent     EDIT=%.0f/s CURSOR=%.0f/s%n",
+                stats.editsSent.sum() / seconds, stats.cursorsSent.sum() / seconds);
+        System.out.printf("received %.0f frames/s%n", stats.framesReceived.sum() / seconds);
+        System.out.println(stats.edit.summary(seconds));
+        System.out.println(stats.cursor.summary(seconds));
+        System.out.printf("resyncs=%d errors=%d abnormal-closes=%d%n",
+                stats.resyncs.sum(), stats.errors.sum(), stats.abnormalCloses.sum());
+    }
+
+    // Random phase so sessions do not fire in lockstep
+    private static void schedule(ScheduledExecutorService scheduler, Runnable task, double ratePerSecond) {
+        if (ratePerSecond <= 0) return;
+        long periodMicros = (long) (1_000_000 / ratePerSecond);
+        long initialDelay = ThreadLocalRandom.current().nextLong(periodMicros);
+        scheduler.scheduleAtFixedRate(task, initialDelay, periodMicros, TimeUnit.MICROSECONDS);
+    }
+}
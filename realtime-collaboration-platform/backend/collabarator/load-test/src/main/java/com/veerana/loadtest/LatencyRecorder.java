@@ -0,0 +1,62 @@
+package com.veerana.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects delivery latencies (nanoseconds) while recording is on.
+ * Samples are kept raw so percentiles are exact; one run stays well within a few million samples.
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1 << 16];
+    private int count;
+    private volatile boolean recording;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public void start() {
+        recording = true;
+    }
+
+    public void stop() {
+        recording = false;
+    }
+
+    public void record(long nanos) {
+        if (!recording) return;
+        synchronized (this) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    // Sorts in place — call once recording has stopped
+    public synchronized String summary(double seconds) {
+        if (count == 0) {
+            return String.format("%-7s no samples", name);
+        }
+        Arrays.sort(samples, 0, count);
+        return String.format("%-7s n=%d  %.0f msg/s  p50=%.2f ms  p99=%.2f ms  p99.9=%.2f ms  max=%.2f ms",
+                name, count, count / seconds,
+                millis(percentile(50)), millis(percentile(99)), millis(percentile(99.9)),
+                millis(samples[count - 1]));
+    }
+
+    private long percentile(double p) {
+        int idx = (int) Math.ceil(p / 100.0 * count) - 1;
+        return samples[Math.max(0, Math.min(idx, count - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,53 @@
+package com.veerana.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options, all given as --key=value.
+ */
+public record LoadTestConfig(
+        String url,              // ws base URL of the collaboration service (or the gateway)
+        int sessions,            // simulated editors in total
+        int documents,           // rooms the editors are spread over (round-robin)
+        double editRate,         // EDIT frames per second per session
+        double cursorRate,       // CURSOR frames per second per session
+        int warmupSeconds,       // traffic that is sent but not recorded
+        int durationSeconds,     // measured window
+        int connectRatePerSecond,// handshake pacing while ramping up
+        String redisServer,      // path to redis-server; when set, a throwaway instance is started
+        int redisPort,
+        String serviceJar,       // collaboration-service jar; when set, it is started against that Redis
+        int servicePort
+) {
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            opts.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        String serviceJar = opts.get("service-jar");
+        int servicePort   = Integer.parseInt(opts.getOrDefault("service-port", "18085"));
+        String defaultUrl = serviceJar != null ? "ws://localhost:" + servicePort : "ws://localhost:8085";
+
+        return new LoadTestConfig(
+                opts.getOrDefault("url", defaultUrl),
+                Integer.parseInt(opts.getOrDefault("sessions", "100")),
+                Integer.parseInt(opts.getOrDefault("documents", "10")),
+                Double.parseDouble(opts.getOrDefault("edit-rate", "2")),
+                Double.parseDouble(opts.getOrDefault("cursor-rate", "10")),
+                Integer.parseInt(opts.getOrDefault("warmup", "5")),
+                Integer.parseInt(opts.getOrDefault("duration", "30")),
+                Integer.parseInt(opts.getOrDefault("connect-rate", "200")),
+                opts.get("redis-server"),
+                Integer.parseInt(opts.getOrDefault("redis-port", "16379")),
+                serviceJar,
+                servicePort
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package com.veerana.loadtest;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Optional containerless stack for CI: a throwaway redis-server (no persistence)
+ * and the collaboration-service jar pointed at it. Both are stopped on close.
+ */
+public class LocalStack implements AutoCloseable {
+
+    private final List<Process> processes = new ArrayList<>();
+
+    public void startRedis(String redisServer, int port) throws IOException, InterruptedException {
+        processes.add(new ProcessBuilder(redisServer,
+                "--port", String.valueOf(port),
+                "--save", "",
+                "--appendonly", "no")
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("load-test-redis.log").toFile())
+                .start());
+        awaitPort(port, Duration.ofSeconds(10));
+        System.out.println("redis-server up on port " + port);
+    }
+
+    public void startService(String jar, int port, int redisPort) throws IOException, InterruptedException {
+        processes.add(new ProcessBuilder("java", "-jar", jar,
+                "--server.port=" + port,
+                // Health on the same port, so awaitHealth needs no second one
+                "--management.server.port=" + port,
+                "--spring.data.redis.port=" + redisPort,
+                // No document-service in this stack: no snapshot write-back and no access lookups
+                // (which also means no INTERNAL_TOKEN is needed)
+                "--collab.snapshot.enabled=false",
+                "--collab.access.enabled=false")
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("load-test-service.log").toFile())
+                .start());
+        awaitHealth(port, Duration.ofSeconds(60));
+        System.out.println("collaboration-service up on port " + port);
+    }
+
+    private static void awaitPort(int port, Duration timeout) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try (Socket ignored = new Socket("localhost", port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IOException("Nothing listening on port " + port + " after " + timeout);
+    }
+
+    private static void awaitHealth(int port, Duration timeout) throws InterruptedException, IOException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/actuator/health")).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (IOException e) {
+                // not up yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IOException("collaboration-service not healthy on port " + port + " after " + timeout);
+    }
+
+    @Override
+    public void close() {
+        // Service first, so it does not log Redis connection errors on the way down
+        for (int i = processes.size() - 1; i >= 0; i--) {
+            processes.get(i).destroy();
+        }
+    }
+}
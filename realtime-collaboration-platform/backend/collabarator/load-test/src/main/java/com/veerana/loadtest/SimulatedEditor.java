@@ -0,0 +1,141 @@
+package com.veerana.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated client on /ws/collab/{documentId}.
+ * Send time (System.nanoTime, same JVM for every editor) travels inside the frame:
+ * EDIT as the text of its insert op, CURSOR as the cursor position.
+ */
+public class SimulatedEditor implements WebSocket.Listener {
+
+    private static final String STAMP = "~";
+
+    private final ObjectMapper mapper;
+    private final String email;
+    private final String documentId;
+    private final Stats stats;
+
+    private final StringBuilder partial = new StringBuilder();
+    private final AtomicLong revision = new AtomicLong();
+    private volatile WebSocket socket;
+    private CompletableFuture<WebSocket> lastSend = CompletableFuture.completedFuture(null);
+
+    public SimulatedEditor(ObjectMapper mapper, String email, String documentId, Stats stats) {
+        this.mapper = mapper;
+        this.email = email;
+        this.documentId = documentId;
+        this.stats = stats;
+    }
+
+    public CompletableFuture<WebSocket> connect(HttpClient client, String baseUrl) {
+        return client.newWebSocketBuilder()
+                .header("X-User-Email", email)
+                .buildAsync(URI.create(baseUrl + "/ws/collab/" + documentId), this)
+                .thenApply(ws -> socket = ws);
+    }
+
+    // =========================
+    // SEND
+    // =========================
+    public void sendEdit() {
+        ObjectNode op = mapper.createObjectNode()
+                .put("type", "INSERT")
+                .put("position", 0)
+                .put("text", STAMP + System.nanoTime());
+        ObjectNode msg = mapper.createObjectNode()
+                .put("type", "EDIT")
+                .put("revision", revision.get());
+        msg.putArray("ops").add(op);
+        send(msg);
+        stats.editsSent.increment();
+    }
+
+    public void sendCursor() {
+        send(mapper.createObjectNode()
+                .put("type", "CURSOR")
+                .put("content", STAMP + System.nanoTime()));
+        stats.cursorsSent.increment();
+    }
+
+    // The JDK WebSocket allows one outstanding send, so frames are chained per session
+    private synchronized void send(ObjectNode msg) {
+        WebSocket ws = socket;
+        if (ws == null || ws.isOutputClosed()) return;
+        String text = msg.toString();
+        lastSend = lastSend
+                .exceptionally(e -> null)
+                .thenCompose(ignored -> ws.sendText(text, true));
+    }
+
+    public void close() {
+        WebSocket ws = socket;
+        if (ws != null && !ws.isOutputClosed()) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "load test done");
+        }
+    }
+
+    // =========================
+    // RECEIVE
+    // =========================
+    @Override
+    public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            long now = System.nanoTime();
+            try {
+                onFrame(mapper.readTree(partial.toString()), now);
+            } catch (Exception e) {
+                stats.errors.increment();
+            }
+            partial.setLength(0);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    private void onFrame(JsonNode msg, long now) {
+        stats.framesReceived.increment();
+        String type = msg.path("type").asText();
+
+        if (msg.hasNonNull("revision")) {
+            revision.accumulateAndGet(msg.get("revision").asLong(), Math::max);
+        }
+
+        switch (type) {
+            case "EDIT" -> {
+                JsonNode ops = msg.path("ops");
+                if (ops.size() > 0) stamp(stats.edit, ops.get(0).path("text").asText(), now);
+            }
+            case "CURSOR" -> stamp(stats.cursor, msg.path("content").asText(), now);
+            case "CURSORS" -> msg.path("cursors").forEach(pos -> stamp(stats.cursor, pos.asText(), now));
+            case "RESYNC" -> stats.resyncs.increment();
+            default -> { }
+        }
+    }
+
+    private static void stamp(LatencyRecorder recorder, String value, long now) {
+        if (value == null || !value.startsWith(STAMP)) return;
+        recorder.record(now - Long.parseLong(value.substring(STAMP.length())));
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+        if (statusCode != WebSocket.NORMAL_CLOSURE) stats.abnormalCloses.increment();
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket ws, Throwable error) {
+        stats.errors.increment();
+    }
+}
@@ -0,0 +1,33 @@
+package com.veerana.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency recorders shared by every simulated editor.
+ */
+public class Stats {
+
+    final LatencyRecorder edit   = new LatencyRecorder("EDIT");
+    final LatencyRecorder cursor = new LatencyRecorder("CURSOR");
+
+    final LongAdder editsSent      = new LongAdder();
+    final LongAdder cursorsSent    = new LongAdder();
+    final LongAdder framesReceived = new LongAdder();
+    final LongAdder resyncs        = new LongAdder();
+    final LongAdder errors         = new LongAdder();
+    final LongAdder abnormalCloses = new LongAdder();
+
+    void startRecording() {
+        editsSent.reset();
+        cursorsSent.reset();
+        framesReceived.reset();
+        resyncs.reset();
+        edit.start();
+        cursor.start();
+    }
+
+    void stopRecording() {
+        edit.stop();
+        cursor.stop();
+    }
+}
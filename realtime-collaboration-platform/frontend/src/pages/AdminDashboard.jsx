@@ -53,6 +53,8 @@ export default function AdminDashboard() {
 
     const [activeNav, setActiveNav] = useState("overview");
     const [docs, setDocs] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null); // keyset paging, as in Dashboard
+    const [loadingMore, setLoadingMore] = useState(false);
     const [loading, setLoading] = useState(true);
 
     // Guard: must be ADMIN
@@ -74,7 +76,8 @@ export default function AdminDashboard() {
         try {
             // GET /api/documents — gateway allows ADMIN through /api/user/** + /api/documents/**
             const res = await API.get("/documents");
-            setDocs(res.data);
+            setDocs(res.data.items);
+            setNextCursor(res.data.nextCursor);
         } catch (e) {
             console.error("Admin: failed to fetch docs", e);
         } finally {
@@ -82,6 +85,22 @@ export default function AdminDashboard() {
         }
     };
 
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const res = await API.get("/documents", { params: { cursor: nextCursor } });
+            setDocs(prev => [...prev, ...res.data.items]);
+            setNextCursor(res.data.nextCursor);
+        } catch (e) {
+            console.error("Admin: failed to fetch more docs", e);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
+    // More pages to load — the count so far is a lower bound
+    const docCount = `${docs.length}${nextCursor ? "+" : ""}`;
+
     const handleForceDelete = async (id) => {
         if (!window.confirm("Force delete this document?")) return;
         try {
@@ -166,7 +185,7 @@ export default function AdminDashboard() {
                     {/* Stats */}
                     <div style={S.statsGrid}>
                         {[
-                            { label: "TOTAL DOCUMENTS", value: loading ? "—" : docs.length },
+                            { label: "TOTAL DOCUMENTS", value: loading ? "—" : docCount },
                             { label: "YOUR ROLE", value: "ADMIN" },
                             { label: "STATUS", value: "Live" },
                         ].map(s => (
@@ -180,7 +199,7 @@ export default function AdminDashboard() {
                     {/* Documents table */}
                     <div style={S.sectionTitle}>
                         {activeNav === "overview" ? "Recent documents" : "All documents"}
-                        {!loading && <span style={{ fontWeight: 400, color: "#bbb", marginLeft: "8px", fontSize: "14px" }}>({docs.length} total)</span>}
+                        {!loading && <span style={{ fontWeight: 400, color: "#bbb", marginLeft: "8px", fontSize: "14px" }}>({docCount} total)</span>}
                     </div>
 
                     {loading ? (
@@ -228,6 +247,13 @@ export default function AdminDashboard() {
                             </tbody>
                         </table>
                     )}
+
+                    {activeNav === "documents" && nextCursor && (
+                        <button
+                            style={{ marginTop: "16px", padding: "9px 18px", background: "#fff", border: "1px solid #e8e8e8", borderRadius: "8px", fontSize: "13px", color: "#111", cursor: "pointer", fontFamily: "inherit" }}
+                            onClick={loadMore} disabled={loadingMore}
+                        >{loadingMore ? "Loading..." : "Load more"}</button>
+                    )}
                 </div>
             </div>
         </div>
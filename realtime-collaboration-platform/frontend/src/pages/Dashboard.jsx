@@ -68,6 +68,8 @@ function Modal({ onClose, children }) {
 function DocumentsTab() {
     const navigate = useNavigate();
     const [docs, setDocs] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null); // ✅ keyset paging
+    const [loadingMore, setLoadingMore] = useState(false);
     const [teams, setTeams] = useState([]); // for team selector in create modal
     const [loading, setLoading] = useState(true);
     const [showCreate, setShowCreate] = useState(false);
@@ -86,11 +88,22 @@ function DocumentsTab() {
         setLoading(true);
         try {
             const res = await API.get("/documents");
-            setDocs(res.data);
+            setDocs(res.data.items);
+            setNextCursor(res.data.nextCursor);
         } catch (e) { console.error(e); }
         finally { setLoading(false); }
     };
 
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const res = await API.get("/documents", { params: { cursor: nextCursor } });
+            setDocs(prev => [...prev, ...res.data.items]);
+            setNextCursor(res.data.nextCursor);
+        } catch (e) { console.error(e); }
+        finally { setLoadingMore(false); }
+    };
+
     const loadTeams = async () => {
         try {
             const res = await API.get("/teams");
@@ -114,6 +127,14 @@ function DocumentsTab() {
         finally { setCreating(false); }
     };
 
+    // List entries are summaries — load the full content for the AI panel
+    const openAi = async (doc) => {
+        try {
+            const res = await API.get(`/documents/${doc.id}`);
+            setAiDoc(res.data);
+        } catch (e) { console.error(e); }
+    };
+
     const handleDelete = async (id, e) => {
         e.stopPropagation();
         if (!window.confirm("Delete this document?")) return;
@@ -167,7 +188,7 @@ function DocumentsTab() {
                         <>
                             {teamDocs.length > 0 && <div style={S.teamDocTitle}>Personal</div>}
                             <div style={{ ...S.docGrid, marginBottom: "28px" }}>
-                                {personalDocs.map(doc => <DocCard key={doc.id} doc={doc} teamMap={teamMap} onNavigate={() => navigate(`/editor/${doc.id}`)} onShare={() => setShowShare(doc.id)} onDelete={handleDelete} onAi={() => setAiDoc(doc)} />)}
+                                {personalDocs.map(doc => <DocCard key={doc.id} doc={doc} teamMap={teamMap} onNavigate={() => navigate(`/editor/${doc.id}`)} onShare={() => setShowShare(doc.id)} onDelete={handleDelete} onAi={() => openAi(doc)} />)}
                             </div>
                         </>
                     )}
@@ -180,13 +201,20 @@ function DocumentsTab() {
                                     <div style={S.teamDocTitle}>📁 {teamMap[tid] || "Team"}</div>
                                     <div style={{ ...S.docGrid, marginBottom: "24px" }}>
                                         {teamDocs.filter(d => d.teamId === tid).map(doc => (
-                                            <DocCard key={doc.id} doc={doc} teamMap={teamMap} onNavigate={() => navigate(`/editor/${doc.id}`)} onShare={() => setShowShare(doc.id)} onDelete={handleDelete} onAi={() => setAiDoc(doc)} />
+                                            <DocCard key={doc.id} doc={doc} teamMap={teamMap} onNavigate={() => navigate(`/editor/${doc.id}`)} onShare={() => setShowShare(doc.id)} onDelete={handleDelete} onAi={() => openAi(doc)} />
                                         ))}
                                     </div>
                                 </div>
                             ))}
                         </>
                     )}
+
+                    {nextCursor && (
+                        <button style={{ ...S.createBtn, background: "#fff", color: "#111", border: "1px solid #e8e8e8" }}
+                            onClick={loadMore} disabled={loadingMore}>
+                            {loadingMore ? "Loading..." : "Load more"}
+                        </button>
+                    )}
                 </>
             )}
 
@@ -277,6 +305,8 @@ function TeamsTab() {
     const [teams, setTeams] = useState([]);
     const [members, setMembers] = useState({});
     const [teamDocs, setTeamDocs] = useState({}); // ✅ teamId → docs[]
+    const [teamCursors, setTeamCursors] = useState({}); // teamId → nextCursor (keyset paging)
+    const [loadingMoreTeam, setLoadingMoreTeam] = useState(null);
     const [expandedTeam, setExpandedTeam] = useState(null);
     const [loading, setLoading] = useState(true);
     const [showCreate, setShowCreate] = useState(false);
@@ -312,11 +342,22 @@ function TeamsTab() {
         if (!teamDocs[teamId]) {
             try {
                 const res = await API.get(`/documents/team/${teamId}`);
-                setTeamDocs(prev => ({ ...prev, [teamId]: res.data }));
+                setTeamDocs(prev => ({ ...prev, [teamId]: res.data.items }));
+                setTeamCursors(prev => ({ ...prev, [teamId]: res.data.nextCursor }));
             } catch { setTeamDocs(prev => ({ ...prev, [teamId]: [] })); }
         }
     };
 
+    const loadMoreTeamDocs = async (teamId) => {
+        setLoadingMoreTeam(teamId);
+        try {
+            const res = await API.get(`/documents/team/${teamId}`, { params: { cursor: teamCursors[teamId] } });
+            setTeamDocs(prev => ({ ...prev, [teamId]: [...prev[teamId], ...res.data.items] }));
+            setTeamCursors(prev => ({ ...prev, [teamId]: res.data.nextCursor }));
+        } catch (e) { console.error(e); }
+        finally { setLoadingMoreTeam(null); }
+    };
+
     const handleCreate = async () => {
         if (!teamName.trim()) return;
         setCreating(true);
@@ -418,6 +459,13 @@ function TeamsTab() {
                                                 📄 <span style={{ fontWeight: 500 }}>{doc.title || "Untitled"}</span>
                                             </div>
                                         ))}
+                                        {teamCursors[team.id] && (
+                                            <button
+                                                style={{ padding: "7px 12px", background: "#fff", border: "1px solid #ebebeb", borderRadius: "8px", fontSize: "13px", color: "#111", cursor: "pointer", fontFamily: "inherit" }}
+                                                onClick={() => loadMoreTeamDocs(team.id)} disabled={loadingMoreTeam === team.id}>
+                                                {loadingMoreTeam === team.id ? "Loading..." : "Load more"}
+                                            </button>
+                                        )}
                                     </div>
                                 )}
                             </div>
@@ -46,6 +46,7 @@ export default function Editor() {
     const wsRef = useRef(null);
     const saveTimer = useRef(null);
     const contentRef = useRef("");
+    const versionRef = useRef(null);   // version last read or written — sent as If-Match
 
     // Load document
     useEffect(() => {
@@ -55,10 +56,18 @@ export default function Editor() {
                 setTitle(res.data.title || "Untitled");
                 setContent(res.data.content || "");
                 contentRef.current = res.data.content || "";
+                versionRef.current = res.data.version;
             })
             .catch(() => navigate("/dashboard"));
     }, [documentId]);
 
+    // PUT conditional on the version last seen; the server answers 428 without If-Match
+    const put = useCallback((val) =>
+        API.put(`/documents/${documentId}`, { content: val },
+            { headers: { "If-Match": `"${versionRef.current}"` } })
+            .then(res => { versionRef.current = res.data.version; return res; }),
+        [documentId]);
+
     // WebSocket
     useEffect(() => {
         if (!user?.email || !documentId || !accessToken) return;
@@ -84,12 +93,22 @@ export default function Editor() {
 
     // Auto-save helper
     const save = useCallback((val) => {
+        if (versionRef.current == null) return;
         setSaving(true);
-        API.put(`/documents/${documentId}`, { content: val })
+        put(val)
             .then(() => setSavedAt(new Date()))
-            .catch(() => { })
+            .catch(err => {
+                // Changed elsewhere since our version — take the stored document instead of overwriting it
+                if (err.response?.status === 409) {
+                    API.get(`/documents/${documentId}`).then(res => {
+                        setContent(res.data.content || "");
+                        contentRef.current = res.data.content || "";
+                        versionRef.current = res.data.version;
+                    }).catch(() => { });
+                }
+            })
             .finally(() => setSaving(false));
-    }, [documentId]);
+    }, [documentId, put]);
 
     const handleChange = useCallback((e) => {
         const val = e.target.value;
@@ -114,8 +133,8 @@ export default function Editor() {
     // Final save on unmount
     useEffect(() => () => {
         clearTimeout(saveTimer.current);
-        API.put(`/documents/${documentId}`, { content: contentRef.current }).catch(() => { });
-    }, [documentId]);
+        if (versionRef.current != null) put(contentRef.current).catch(() => { });
+    }, [documentId, put]);
 
     const others = presence.filter(e => e !== user?.email);
 